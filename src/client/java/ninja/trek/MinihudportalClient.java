@@ -7,6 +7,7 @@ import fi.dy.masa.malilib.event.WorldLoadHandler;
 import fi.dy.masa.minihud.renderer.RenderContainer;
 import ninja.trek.portal.PortalGhostRenderer;
 import ninja.trek.portal.PortalHudRenderer;
+import ninja.trek.portal.PortalPreviewService;
 import ninja.trek.portal.PortalScanner;
 import ninja.trek.portal.PortalWorldLoadListener;
 import ninja.trek.portal.PortalZoneRenderer;
@@ -23,5 +24,6 @@ public class MinihudportalClient implements ClientModInitializer {
 		RenderEventHandler.getInstance().registerGameOverlayRenderer(PortalHudRenderer.getInstance());
 
 		ClientTickEvents.END_CLIENT_TICK.register(PortalScanner.getInstance()::tick);
+		ClientTickEvents.END_CLIENT_TICK.register(PortalPreviewService.getInstance()::tick);
 	}
 }
@@ -62,6 +62,26 @@ public final class PortalBounds
         return new BlockPos(this.maxX, this.maxY, this.maxZ);
     }
 
+    public int getClosestX(int x)
+    {
+        return Math.max(this.minX, Math.min(this.maxX, x));
+    }
+
+    public int getClosestZ(int z)
+    {
+        return Math.max(this.minZ, Math.min(this.maxZ, z));
+    }
+
+    // Squared distance from the given position to the nearest block of the portal's bottom layer,
+    // which is the position the vanilla portal search measures against for every portal column
+    public double getBottomDistanceSq(int x, int y, int z)
+    {
+        double dx = this.getClosestX(x) - x;
+        double dy = this.minY - y;
+        double dz = this.getClosestZ(z) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
     public boolean intersectsChunk(ChunkPos chunkPos)
     {
         int chunkMinX = chunkPos.getStartX();
@@ -0,0 +1,211 @@
+package ninja.trek.portal;
+
+import java.util.List;
+import org.jetbrains.annotations.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+// The portal bounds the destination search looks at, packed into parallel arrays.
+// The resolver loops run once per candidate per column or voxel, and reading a few ints
+// out of flat arrays beats going through a list, a record and a bounds object every time.
+public final class PortalCandidateTable
+{
+    private static final Logger LOGGER = LogManager.getLogger("minihud-portal");
+    // The Vector API path is only there when the game runs with --add-modules jdk.incubator.vector,
+    // and can be turned off with -Dminihud-portal.disableVectorSearch=true to compare against the scalar loop
+    @Nullable private static final VectorSearch VECTORS = loadVectorSearch();
+    // A line is a lot cheaper than a distance and the scalar loop predicts well, PortalCandidateBenchmark has
+    // the vectors only pull ahead of it from about this many lines with 256-bit vectors, and from 128 with 512-bit ones
+    private static final int VECTOR_LINES = 256;
+
+    private final int size;
+    private final int[] minX;
+    private final int[] maxX;
+    private final int[] minZ;
+    private final int[] maxZ;
+    private final int[] minY;
+
+    private PortalCandidateTable(int size)
+    {
+        this.size = size;
+        this.minX = new int[size];
+        this.maxX = new int[size];
+        this.minZ = new int[size];
+        this.maxZ = new int[size];
+        this.minY = new int[size];
+    }
+
+    public static PortalCandidateTable of(List<PortalBounds> bounds)
+    {
+        PortalCandidateTable table = new PortalCandidateTable(bounds.size());
+
+        for (int i = 0; i < bounds.size(); ++i)
+        {
+            PortalBounds portal = bounds.get(i);
+            table.minX[i] = portal.getMinX();
+            table.maxX[i] = portal.getMaxX();
+            table.minZ[i] = portal.getMinZ();
+            table.maxZ[i] = portal.getMaxZ();
+            table.minY[i] = portal.getMinY();
+        }
+
+        return table;
+    }
+
+    public static boolean hasVectorSearch()
+    {
+        return VECTORS != null;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    // Approximate heap size of the arrays
+    public long getSizeInBytes()
+    {
+        return this.size * 20L;
+    }
+
+    public int getMinX(int index) { return this.minX[index]; }
+    public int getMaxX(int index) { return this.maxX[index]; }
+    public int getMinZ(int index) { return this.minZ[index]; }
+    public int getMaxZ(int index) { return this.maxZ[index]; }
+    public int getMinY(int index) { return this.minY[index]; }
+
+    public int getClosestX(int index, int x)
+    {
+        return Math.max(this.minX[index], Math.min(this.maxX[index], x));
+    }
+
+    public int getClosestZ(int index, int z)
+    {
+        return Math.max(this.minZ[index], Math.min(this.maxZ[index], z));
+    }
+
+    public boolean isOutsideSearchSquare(int index, int destX, int destZ, int radius)
+    {
+        return this.maxX[index] < destX - radius || this.minX[index] > destX + radius ||
+               this.maxZ[index] < destZ - radius || this.minZ[index] > destZ + radius;
+    }
+
+    // Same as PortalBounds.getBottomDistanceSq()
+    public double getBottomDistanceSq(int index, int x, int y, int z)
+    {
+        double dx = this.getClosestX(index, x) - x;
+        double dy = this.minY[index] - y;
+        double dz = this.getClosestZ(index, z) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Index of the portal the vanilla search would pick for the destination, or -1 if none is in range.
+    // The compare is strict, so the earliest index wins ties.
+    public int findClosest(int destX, int destY, int destZ, int radius)
+    {
+        // A single vector worth of candidates isn't worth the setup
+        if (VECTORS != null && this.size >= VECTORS.getLanes() * 2)
+        {
+            int end = this.size - (this.size % VECTORS.getLanes());
+            int bestIndex = VECTORS.findClosest(this.minX, this.maxX, this.minZ, this.maxZ, this.minY, end,
+                                                destX, destY, destZ, radius);
+            return this.findClosestScalar(end, bestIndex, destX, destY, destZ, radius);
+        }
+
+        return this.findClosestScalar(0, -1, destX, destY, destZ, radius);
+    }
+
+    // The scalar search over start until size. The candidates before start come earlier,
+    // so they keep bestIndex unless a later one is strictly closer.
+    int findClosestScalar(int start, int bestIndex, int destX, int destY, int destZ, int radius)
+    {
+        double bestDist = bestIndex != -1 ? this.getBottomDistanceSq(bestIndex, destX, destY, destZ) : Double.POSITIVE_INFINITY;
+
+        for (int i = start; i < this.size; ++i)
+        {
+            if (this.isOutsideSearchSquare(i, destX, destZ, radius))
+            {
+                continue;
+            }
+
+            double distSq = this.getBottomDistanceSq(i, destX, destY, destZ);
+
+            if (distSq < bestDist)
+            {
+                bestDist = distSq;
+                bestIndex = i;
+            }
+        }
+
+        return bestIndex;
+    }
+
+    // Index of the lowest constants[i] - slopes[i] * y among the first count lines, the earliest one on ties.
+    // This is the argmin the zone ColumnResolver runs for every interval of a column, its candidates are
+    // packed in index order so the earliest line is also the lowest portal index.
+    static int findLowestLine(double[] constants, double[] slopes, int count, double y)
+    {
+        if (VECTORS != null && count >= VECTOR_LINES)
+        {
+            int end = count - (count % VECTORS.getLanes());
+            int best = VECTORS.findLowestLine(constants, slopes, end, y);
+            return findLowestLineScalar(constants, slopes, end, count, best, y);
+        }
+
+        return findLowestLineScalar(constants, slopes, 0, count, -1, y);
+    }
+
+    // The scalar argmin over start until count, the lines before start keep best unless a later one is strictly lower
+    static int findLowestLineScalar(double[] constants, double[] slopes, int start, int count, int best, double y)
+    {
+        double bestValue = best != -1 ? constants[best] - slopes[best] * y : Double.POSITIVE_INFINITY;
+
+        for (int i = start; i < count; ++i)
+        {
+            double value = constants[i] - slopes[i] * y;
+
+            if (value < bestValue)
+            {
+                bestValue = value;
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    @Nullable
+    private static VectorSearch loadVectorSearch()
+    {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty() || Boolean.getBoolean("minihud-portal.disableVectorSearch"))
+        {
+            return null;
+        }
+
+        // By name, so nothing outside the vector source set is compiled against the incubating module
+        try
+        {
+            VectorSearch search = (VectorSearch) Class.forName("ninja.trek.portal.PortalCandidateVectors").getDeclaredConstructor().newInstance();
+            LOGGER.info("Portal candidate search uses the Vector API with {} lanes", search.getLanes());
+            return search;
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            LOGGER.warn("Failed to load the Vector API portal candidate search, using the scalar one", e);
+            return null;
+        }
+    }
+
+    // Implemented by PortalCandidateVectors in the vector source set
+    interface VectorSearch
+    {
+        int getLanes();
+
+        // Best candidate among indices 0 until end, which must be a multiple of getLanes(), or -1 if none is in range
+        int findClosest(int[] minX, int[] maxX, int[] minZ, int[] maxZ, int[] minY, int end,
+                        int destX, int destY, int destZ, int radius);
+
+        // Lowest line among indices 0 until end, which must be a multiple of getLanes() and at least one vector
+        int findLowestLine(double[] constants, double[] slopes, int end, double y);
+    }
+}
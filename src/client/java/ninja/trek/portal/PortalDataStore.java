@@ -4,7 +4,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import com.google.gson.JsonArray;
@@ -14,6 +17,7 @@ import com.google.gson.JsonPrimitive;
 import fi.dy.masa.malilib.util.FileUtils;
 import fi.dy.masa.malilib.util.JsonUtils;
 import fi.dy.masa.malilib.util.StringUtils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
@@ -28,7 +32,12 @@ public class PortalDataStore
     private final List<PortalEntry> portals = new ArrayList<>();
     private final PortalZoneSettings zoneSettings = new PortalZoneSettings();
     private final List<Runnable> listeners = new ArrayList<>();
+    // Per dimension, every chunk column a portal's bounds touch maps to the portals touching it
+    private final Map<PortalDimension, Long2ObjectOpenHashMap<List<IndexedPortal>>> chunkIndex = new HashMap<>();
+    // Increases with every portal added, so the index entries compare in the same order as the portals list
+    private long nextOrder;
     private boolean dirty;
+    private long version;
 
     public static PortalDataStore getInstance()
     {
@@ -40,6 +49,12 @@ public class PortalDataStore
         return Collections.unmodifiableList(this.portals);
     }
 
+    // Bumped every time listeners are notified, lets consumers cache results derived from the portal list
+    public long getVersion()
+    {
+        return this.version;
+    }
+
     public PortalZoneSettings getZoneSettings()
     {
         return this.zoneSettings;
@@ -61,6 +76,8 @@ public class PortalDataStore
     public void clear()
     {
         this.portals.clear();
+        this.chunkIndex.clear();
+        this.nextOrder = 0L;
         this.zoneSettings.reset();
         this.dirty = false;
         this.notifyListeners();
@@ -69,6 +86,8 @@ public class PortalDataStore
     public void load()
     {
         this.portals.clear();
+        this.chunkIndex.clear();
+        this.nextOrder = 0L;
         this.dirty = false;
 
         Path file = this.getStorageFile();
@@ -93,6 +112,7 @@ public class PortalDataStore
                     if (entry != null)
                     {
                         this.portals.add(entry);
+                        this.indexPortal(entry, this.nextOrder++);
                     }
                 }
             }
@@ -136,43 +156,74 @@ public class PortalDataStore
         this.notifyListeners();
     }
 
-    public Optional<PortalEntry> findMatching(String dimensionId, PortalBounds bounds)
+    public Optional<PortalEntry> findMatching(PortalDimension dimension, PortalBounds bounds)
     {
-        PortalEntry best = null;
+        Long2ObjectOpenHashMap<List<IndexedPortal>> index = this.chunkIndex.get(dimension);
 
-        for (PortalEntry entry : this.portals)
+        if (index == null)
         {
-            if (entry.getDimensionId().equals(dimensionId) && entry.getBounds().intersects(bounds))
+            return Optional.empty();
+        }
+
+        IndexedPortal best = null;
+
+        for (int chunkZ = bounds.getMinZ() >> 4; chunkZ <= bounds.getMaxZ() >> 4; ++chunkZ)
+        {
+            for (int chunkX = bounds.getMinX() >> 4; chunkX <= bounds.getMaxX() >> 4; ++chunkX)
             {
-                best = entry;
-                break;
+                List<IndexedPortal> entries = index.get(ChunkPos.toLong(chunkX, chunkZ));
+
+                if (entries == null)
+                {
+                    continue;
+                }
+
+                for (IndexedPortal indexed : entries)
+                {
+                    // Several tracked portals can overlap the bounds, keep the earliest one like a list scan would
+                    if ((best == null || indexed.order() < best.order()) && indexed.entry().getBounds().intersects(bounds))
+                    {
+                        best = indexed;
+                    }
+                }
             }
         }
 
-        return Optional.ofNullable(best);
+        return best != null ? Optional.of(best.entry()) : Optional.empty();
     }
 
-    public boolean intersectsTrackedPortal(String dimensionId, BlockPos pos)
+    public boolean intersectsTrackedPortal(PortalDimension dimension, BlockPos pos)
     {
-        for (PortalEntry entry : this.portals)
+        Long2ObjectOpenHashMap<List<IndexedPortal>> index = this.chunkIndex.get(dimension);
+
+        if (index == null)
         {
-            if (entry.getDimensionId().equals(dimensionId))
-            {
-                PortalBounds bounds = entry.getBounds();
+            return false;
+        }
 
-                if (pos.getX() >= bounds.getMinX() && pos.getX() <= bounds.getMaxX() &&
-                    pos.getY() >= bounds.getMinY() && pos.getY() <= bounds.getMaxY() &&
-                    pos.getZ() >= bounds.getMinZ() && pos.getZ() <= bounds.getMaxZ())
-                {
-                    return true;
-                }
+        List<IndexedPortal> entries = index.get(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+
+        if (entries == null)
+        {
+            return false;
+        }
+
+        for (IndexedPortal indexed : entries)
+        {
+            PortalBounds bounds = indexed.entry().getBounds();
+
+            if (pos.getX() >= bounds.getMinX() && pos.getX() <= bounds.getMaxX() &&
+                pos.getY() >= bounds.getMinY() && pos.getY() <= bounds.getMaxY() &&
+                pos.getZ() >= bounds.getMinZ() && pos.getZ() <= bounds.getMaxZ())
+            {
+                return true;
             }
         }
 
         return false;
     }
 
-    public void updateFromSnapshots(String dimensionId, ChunkPos chunkPos, List<PortalSnapshot> snapshots, World world)
+    public void updateFromSnapshots(PortalDimension dimension, ChunkPos chunkPos, List<PortalSnapshot> snapshots, World world)
     {
         boolean changed = false;
         List<PortalEntry> matched = new ArrayList<>();
@@ -180,17 +231,20 @@ public class PortalDataStore
         for (PortalSnapshot snapshot : snapshots)
         {
             PortalBounds bounds = snapshot.bounds();
-            PortalEntry entry = this.findMatching(dimensionId, bounds).orElse(null);
+            PortalEntry entry = this.findMatching(dimension, bounds).orElse(null);
 
             if (entry == null)
             {
-                entry = new PortalEntry(UUID.randomUUID(), dimensionId, bounds, "", PortalColors.defaultColor(bounds));
+                entry = new PortalEntry(UUID.randomUUID(), dimension, bounds, "", PortalColors.defaultColor(bounds));
                 this.portals.add(entry);
+                this.indexPortal(entry, this.nextOrder++);
                 changed = true;
             }
             else if (entry.getBounds().equals(bounds) == false)
             {
+                long order = this.unindexPortal(entry);
                 entry.setBounds(bounds);
+                this.indexPortal(entry, order);
                 changed = true;
             }
 
@@ -198,22 +252,32 @@ public class PortalDataStore
         }
 
         List<PortalEntry> removals = new ArrayList<>();
+        Long2ObjectOpenHashMap<List<IndexedPortal>> index = this.chunkIndex.get(dimension);
+        List<IndexedPortal> inChunk = index != null ? index.get(chunkPos.toLong()) : null;
 
-        for (PortalEntry entry : this.portals)
+        if (inChunk != null)
         {
-            if (entry.getDimensionId().equals(dimensionId) &&
-                entry.getBounds().intersectsChunk(chunkPos) &&
-                matched.contains(entry) == false)
+            for (IndexedPortal indexed : inChunk)
             {
-                if (world == null || this.portalExistsInBounds(world, entry.getBounds()) == false)
+                PortalEntry entry = indexed.entry();
+
+                if (matched.contains(entry) == false)
                 {
-                    removals.add(entry);
+                    if (world == null || this.portalExistsInBounds(world, entry.getBounds()) == false)
+                    {
+                        removals.add(entry);
+                    }
                 }
             }
         }
 
         if (removals.isEmpty() == false)
         {
+            for (PortalEntry entry : removals)
+            {
+                this.unindexPortal(entry);
+            }
+
             this.portals.removeAll(removals);
             changed = true;
         }
@@ -225,6 +289,75 @@ public class PortalDataStore
         }
     }
 
+    private void indexPortal(PortalEntry entry, long order)
+    {
+        Long2ObjectOpenHashMap<List<IndexedPortal>> index =
+                this.chunkIndex.computeIfAbsent(entry.getDimension(), k -> new Long2ObjectOpenHashMap<>());
+        PortalBounds bounds = entry.getBounds();
+        IndexedPortal indexed = new IndexedPortal(entry, order);
+
+        for (int chunkZ = bounds.getMinZ() >> 4; chunkZ <= bounds.getMaxZ() >> 4; ++chunkZ)
+        {
+            for (int chunkX = bounds.getMinX() >> 4; chunkX <= bounds.getMaxX() >> 4; ++chunkX)
+            {
+                long key = ChunkPos.toLong(chunkX, chunkZ);
+                List<IndexedPortal> entries = index.get(key);
+
+                if (entries == null)
+                {
+                    entries = new ArrayList<>(2);
+                    index.put(key, entries);
+                }
+
+                entries.add(indexed);
+            }
+        }
+    }
+
+    // Returns the order the entry was indexed with, so it keeps its place when it is indexed again
+    private long unindexPortal(PortalEntry entry)
+    {
+        Long2ObjectOpenHashMap<List<IndexedPortal>> index = this.chunkIndex.get(entry.getDimension());
+        long order = -1L;
+
+        if (index == null)
+        {
+            return this.nextOrder++;
+        }
+
+        PortalBounds bounds = entry.getBounds();
+
+        for (int chunkZ = bounds.getMinZ() >> 4; chunkZ <= bounds.getMaxZ() >> 4; ++chunkZ)
+        {
+            for (int chunkX = bounds.getMinX() >> 4; chunkX <= bounds.getMaxX() >> 4; ++chunkX)
+            {
+                long key = ChunkPos.toLong(chunkX, chunkZ);
+                List<IndexedPortal> entries = index.get(key);
+
+                if (entries == null)
+                {
+                    continue;
+                }
+
+                for (int i = 0; i < entries.size(); ++i)
+                {
+                    if (entries.get(i).entry() == entry)
+                    {
+                        order = entries.remove(i).order();
+                        break;
+                    }
+                }
+
+                if (entries.isEmpty())
+                {
+                    index.remove(key);
+                }
+            }
+        }
+
+        return order != -1L ? order : this.nextOrder++;
+    }
+
     private JsonObject portalToJson(PortalEntry entry)
     {
         PortalBounds bounds = entry.getBounds();
@@ -266,7 +399,7 @@ public class PortalDataStore
         {
             UUID id = UUID.fromString(idStr);
             PortalBounds bounds = new PortalBounds(minX, minY, minZ, maxX, maxY, maxZ);
-            return new PortalEntry(id, dimension, bounds, alias, color);
+            return new PortalEntry(id, PortalDimension.of(dimension), bounds, alias, color);
         }
         catch (IllegalArgumentException ignore)
         {
@@ -275,6 +408,20 @@ public class PortalDataStore
     }
 
     private Path getStorageFile()
+    {
+        String fileName = StringUtils.getStorageFileName(true, "", ".json", "minihud-portal_default");
+        return this.getStorageDirectory().resolve(fileName);
+    }
+
+    // Computed zones of the portals that link into the given dimension, stored next to the portal data
+    public Path getZoneCacheFile(PortalDimension dimension)
+    {
+        String suffix = "_zones_" + dimension.getId().replace(':', '_').toLowerCase(Locale.ROOT) + ".bin";
+        String fileName = StringUtils.getStorageFileName(true, "", suffix, "minihud-portal_default");
+        return this.getStorageDirectory().resolve(fileName);
+    }
+
+    private Path getStorageDirectory()
     {
         Path saveDir = FileUtils.getConfigDirectoryAsPath().resolve("minihud-portal");
 
@@ -283,12 +430,13 @@ public class PortalDataStore
             FileUtils.createDirectoriesIfMissing(saveDir);
         }
 
-        String fileName = StringUtils.getStorageFileName(true, "", ".json", "minihud-portal_default");
-        return saveDir.resolve(fileName);
+        return saveDir;
     }
 
     private void notifyListeners()
     {
+        ++this.version;
+
         for (Runnable listener : this.listeners)
         {
             listener.run();
@@ -326,4 +474,9 @@ public class PortalDataStore
 
         return false;
     }
+
+    // A portal in the chunk index, with its place in the portals list for tie breaks
+    private record IndexedPortal(PortalEntry entry, long order)
+    {
+    }
 }
@@ -0,0 +1,57 @@
+package ninja.trek.portal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.world.World;
+
+public final class PortalDimension
+{
+    // Handles are interned, so dimensions compare by identity on the hot paths
+    private static final Map<String, PortalDimension> BY_ID = new ConcurrentHashMap<>();
+    private static final Map<RegistryKey<World>, PortalDimension> BY_KEY = new ConcurrentHashMap<>();
+
+    public static final PortalDimension OVERWORLD = of(World.OVERWORLD);
+    public static final PortalDimension NETHER = of(World.NETHER);
+
+    private final String id;
+
+    private PortalDimension(String id)
+    {
+        this.id = id;
+    }
+
+    public static PortalDimension of(String id)
+    {
+        return BY_ID.computeIfAbsent(id, PortalDimension::new);
+    }
+
+    public static PortalDimension of(RegistryKey<World> key)
+    {
+        PortalDimension dimension = BY_KEY.get(key);
+
+        if (dimension == null)
+        {
+            dimension = of(key.getValue().toString());
+            BY_KEY.put(key, dimension);
+        }
+
+        return dimension;
+    }
+
+    public static PortalDimension of(World world)
+    {
+        return of(world.getRegistryKey());
+    }
+
+    public String getId()
+    {
+        return this.id;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.id;
+    }
+}
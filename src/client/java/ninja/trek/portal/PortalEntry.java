@@ -7,15 +7,15 @@ import net.minecraft.util.math.BlockPos;
 public class PortalEntry
 {
     private final UUID id;
-    private final String dimensionId;
+    private final PortalDimension dimension;
     private PortalBounds bounds;
     private String alias;
     private int color;
 
-    public PortalEntry(UUID id, String dimensionId, PortalBounds bounds, String alias, int color)
+    public PortalEntry(UUID id, PortalDimension dimension, PortalBounds bounds, String alias, int color)
     {
         this.id = id;
-        this.dimensionId = dimensionId;
+        this.dimension = dimension;
         this.bounds = bounds;
         this.alias = alias == null ? "" : alias;
         this.color = color;
@@ -26,9 +26,14 @@ public class PortalEntry
         return this.id;
     }
 
+    public PortalDimension getDimension()
+    {
+        return this.dimension;
+    }
+
     public String getDimensionId()
     {
-        return this.dimensionId;
+        return this.dimension.getId();
     }
 
     public PortalBounds getBounds()
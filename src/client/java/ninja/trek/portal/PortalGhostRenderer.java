@@ -12,6 +12,7 @@ import fi.dy.masa.malilib.render.MaLiLibPipelines;
 import fi.dy.masa.malilib.interfaces.IRangeChangeListener;
 import fi.dy.masa.malilib.util.LayerRange;
 import fi.dy.masa.malilib.util.data.Color4f;
+import fi.dy.masa.minihud.config.Configs;
 import fi.dy.masa.minihud.renderer.OverlayRendererBase;
 import fi.dy.masa.minihud.renderer.RenderUtils;
 
@@ -27,6 +28,7 @@ public class PortalGhostRenderer extends OverlayRendererBase implements IRangeCh
             MaLiLibPipelines.POSITION_COLOR_MASA_NO_DEPTH_NO_CULL);
     private LongOpenHashSet frameBlocks = new LongOpenHashSet();
     @Nullable private PortalBounds lastPortalBounds;
+    private int lastPreviewRevision = -1;
     private boolean dirty = true;
     private boolean hasData;
 
@@ -44,19 +46,21 @@ public class PortalGhostRenderer extends OverlayRendererBase implements IRangeCh
     @Override
     public boolean shouldRender(MinecraftClient mc)
     {
-        return mc.world != null && mc.player != null;
+        return Configs.Generic.MAIN_RENDERING_TOGGLE.getBooleanValue() && mc.world != null && mc.player != null;
     }
 
     @Override
     public boolean needsUpdate(Entity entity, MinecraftClient mc)
     {
-        return true;
+        return this.dirty || PortalPreviewService.getInstance().getRevision() != this.lastPreviewRevision;
     }
 
     @Override
     public void update(Vec3d cameraPos, Entity entity, MinecraftClient mc, Profiler profiler)
     {
-        PortalLinkPreview.PlacementPreview preview = PortalLinkPreview.computePlacementPreview(mc);
+        PortalPreviewService service = PortalPreviewService.getInstance();
+        PortalLinkPreview.PlacementPreview preview = service.getPlacement();
+        this.lastPreviewRevision = service.getRevision();
 
         if (preview == null)
         {
@@ -136,10 +140,16 @@ public class PortalGhostRenderer extends OverlayRendererBase implements IRangeCh
 
     private void clearFrame()
     {
-        this.frameBlocks.clear();
+        // The frame set is shared with the preview service, drop the reference instead of clearing it
+        if (this.frameBlocks.isEmpty() == false)
+        {
+            this.frameBlocks = new LongOpenHashSet();
+        }
+
         this.lastPortalBounds = null;
         this.hasData = false;
-        this.dirty = true;
+        // Nothing to build until the service publishes a new placement
+        this.dirty = false;
     }
 
     private void buildFrameQuads(Vec3d cameraPos)
@@ -147,7 +157,7 @@ public class PortalGhostRenderer extends OverlayRendererBase implements IRangeCh
         if (this.frameBlocks.isEmpty())
         {
             this.hasData = false;
-            this.dirty = true;
+            this.dirty = false;
             return;
         }
 
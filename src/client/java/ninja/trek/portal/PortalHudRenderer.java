@@ -30,22 +30,28 @@ public class PortalHudRenderer implements IRenderer
         return INSTANCE;
     }
 
-    @Override
-    public void onRenderGameOverlayPostAdvanced(DrawContext drawContext, float partialTicks, Profiler profiler, MinecraftClient mc)
+    // True if the HUD would show the link preview this frame
+    public boolean isActive(MinecraftClient mc)
     {
         if (Configs.Generic.MAIN_RENDERING_TOGGLE.getBooleanValue() == false ||
             DebugDataManager.getInstance().shouldShowDebugHudFix() ||
             mc.player == null || mc.options.hudHidden)
         {
-            return;
+            return false;
         }
 
         if (Configs.Generic.REQUIRE_SNEAK.getBooleanValue() && mc.player.isSneaking() == false)
         {
-            return;
+            return false;
         }
 
-        if (Configs.Generic.REQUIRED_KEY.getKeybind().isKeybindHeld() == false)
+        return Configs.Generic.REQUIRED_KEY.getKeybind().isKeybindHeld();
+    }
+
+    @Override
+    public void onRenderGameOverlayPostAdvanced(DrawContext drawContext, float partialTicks, Profiler profiler, MinecraftClient mc)
+    {
+        if (this.isActive(mc) == false)
         {
             return;
         }
@@ -1,6 +1,7 @@
 package ninja.trek.portal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.jetbrains.annotations.Nullable;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
@@ -14,6 +15,13 @@ import net.minecraft.world.border.WorldBorder;
 
 public final class PortalLinkPreview
 {
+    private static final LinkTarget OVERWORLD_LINK_TARGET = new LinkTarget(PortalDimension.NETHER, 8.0D, 128);
+    private static final LinkTarget NETHER_LINK_TARGET = new LinkTarget(PortalDimension.OVERWORLD, 1.0D / 8.0D, 16);
+
+    // The HUD asks for the preview every frame, it only changes with the placement or the portal list
+    @Nullable private static PreviewKey cachedKey;
+    @Nullable private static Preview cachedPreview;
+
     private PortalLinkPreview()
     {
     }
@@ -34,69 +42,87 @@ public final class PortalLinkPreview
         }
 
         World world = mc.world;
-        String currentDimensionId = world.getRegistryKey().getValue().toString();
-        LinkTarget linkTarget = resolveLinkTarget(currentDimensionId);
+        PortalDimension currentDimension = PortalDimension.of(world);
+        LinkTarget linkTarget = resolveLinkTarget(currentDimension);
 
         if (linkTarget == null)
         {
             return null;
         }
 
-        PlacementPreview placementPreview = computePlacementPreview(mc);
+        PlacementPreview placement = PortalPreviewService.getInstance().getPlacement();
 
-        if (placementPreview == null)
+        if (placement == null)
         {
             return null;
         }
 
-        List<PortalEntry> linked = findLinkedPortals(world, currentDimensionId, linkTarget, placementPreview.portalBounds);
-        return new Preview(placementPreview.portalBounds, placementPreview.frameBlocks, linked);
+        // The placement bounds are derived from the player's block position, facing and side. The destinations
+        // are clamped to the world border, so its bounds are part of the key too.
+        BorderInfo borderInfo = new BorderInfo(world.getWorldBorder());
+        PreviewKey key = new PreviewKey(currentDimension, placement.portalBounds, PortalDataStore.getInstance().getVersion(), borderInfo);
+
+        if (cachedPreview != null && key.equals(cachedKey))
+        {
+            return cachedPreview;
+        }
+
+        List<PortalEntry> linked = findLinkedPortals(currentDimension, linkTarget, borderInfo, placement.portalBounds);
+        Preview preview = new Preview(placement.portalBounds, placement.frameBlocks, Collections.unmodifiableList(linked));
+
+        cachedKey = key;
+        cachedPreview = preview;
+
+        return preview;
+    }
+
+    public static void invalidate()
+    {
+        cachedKey = null;
+        cachedPreview = null;
     }
 
-    public static @Nullable PlacementPreview computePlacementPreview(MinecraftClient mc)
+    // Returns previous as is when the player still maps to the same portal placement
+    public static @Nullable PlacementPreview computePlacementPreview(MinecraftClient mc, @Nullable PlacementPreview previous)
     {
         if (mc == null || mc.world == null || mc.player == null)
         {
             return null;
         }
 
-        String currentDimensionId = mc.world.getRegistryKey().getValue().toString();
-
-        if (resolveLinkTarget(currentDimensionId) == null)
+        if (resolveLinkTarget(PortalDimension.of(mc.world)) == null)
         {
             return null;
         }
 
-        Placement placement = computePlacement(mc.player);
+        PlacementKey key = PlacementKey.of(mc.player);
+        PortalBounds portalBounds = computePortalBounds(key);
 
-        if (placement == null)
+        if (previous != null && previous.portalBounds.equals(portalBounds))
         {
-            return null;
+            return previous;
         }
 
-        return new PlacementPreview(placement.portalBounds, placement.frameBlocks);
+        return new PlacementPreview(portalBounds, buildFrameBlocks(portalBounds, key.facing, key.basePos));
     }
 
-    private static @Nullable LinkTarget resolveLinkTarget(String currentDimensionId)
+    private static @Nullable LinkTarget resolveLinkTarget(PortalDimension currentDimension)
     {
-        String overworldId = World.OVERWORLD.getValue().toString();
-        String netherId = World.NETHER.getValue().toString();
-
-        if (currentDimensionId.equals(overworldId))
+        if (currentDimension == PortalDimension.OVERWORLD)
         {
-            return new LinkTarget(netherId, 8.0D, 128);
+            return OVERWORLD_LINK_TARGET;
         }
 
-        if (currentDimensionId.equals(netherId))
+        if (currentDimension == PortalDimension.NETHER)
         {
-            return new LinkTarget(overworldId, 1.0D / 8.0D, 16);
+            return NETHER_LINK_TARGET;
         }
 
         return null;
     }
 
-    private static List<PortalEntry> findLinkedPortals(World world, String currentDimensionId,
-                                                       LinkTarget linkTarget, PortalBounds destinationPortal)
+    private static List<PortalEntry> findLinkedPortals(PortalDimension currentDimension, LinkTarget linkTarget,
+                                                       BorderInfo borderInfo, PortalBounds destinationPortal)
     {
         List<PortalEntry> allPortals = PortalDataStore.getInstance().getPortals();
         List<PortalBounds> targetCandidates = new ArrayList<>();
@@ -104,24 +130,23 @@ public final class PortalLinkPreview
 
         for (PortalEntry entry : allPortals)
         {
-            if (entry.getDimensionId().equals(currentDimensionId))
+            if (entry.getDimension() == currentDimension)
             {
                 targetCandidates.add(entry.getBounds());
             }
         }
 
-        WorldBorder border = world.getWorldBorder();
-        BorderInfo borderInfo = new BorderInfo(border);
+        PortalCandidateTable candidateTable = PortalCandidateTable.of(targetCandidates);
         List<PortalEntry> linked = new ArrayList<>();
 
         for (PortalEntry entry : allPortals)
         {
-            if (entry.getDimensionId().equals(linkTarget.sourceDimensionId) == false)
+            if (entry.getDimension() != linkTarget.sourceDimension)
             {
                 continue;
             }
 
-            if (linksToDestination(entry.getBounds(), targetCandidates, linkTarget, borderInfo))
+            if (linksToDestination(entry.getBounds(), candidateTable, linkTarget, borderInfo))
             {
                 linked.add(entry);
             }
@@ -130,7 +155,7 @@ public final class PortalLinkPreview
         return linked;
     }
 
-    private static boolean linksToDestination(PortalBounds sourceBounds, List<PortalBounds> targetCandidates,
+    private static boolean linksToDestination(PortalBounds sourceBounds, PortalCandidateTable targetCandidates,
                                               LinkTarget linkTarget, BorderInfo borderInfo)
     {
         for (int y = sourceBounds.getMinY(); y <= sourceBounds.getMaxY(); ++y)
@@ -153,69 +178,21 @@ public final class PortalLinkPreview
     }
 
     private static int resolvePortalIndex(int worldX, int worldY, int worldZ, LinkTarget linkTarget,
-                                          BorderInfo borderInfo, List<PortalBounds> targetCandidates)
+                                          BorderInfo borderInfo, PortalCandidateTable targetCandidates)
     {
         int destX = borderInfo.clampX((worldX + 0.5D) * linkTarget.scale);
         int destZ = borderInfo.clampZ((worldZ + 0.5D) * linkTarget.scale);
         int destY = MathHelper.floor(worldY + 0.5D);
-        int radius = linkTarget.searchRadius;
-
-        int bestIndex = -1;
-        double bestDist = Double.POSITIVE_INFINITY;
 
-        for (int candidateIndex = 0; candidateIndex < targetCandidates.size(); ++candidateIndex)
-        {
-            PortalBounds bounds = targetCandidates.get(candidateIndex);
-
-            if (isOutsideSearchSquare(bounds, destX, destZ, radius))
-            {
-                continue;
-            }
-
-            int portalMinY = bounds.getMinY();
-
-            for (int portalX = bounds.getMinX(); portalX <= bounds.getMaxX(); ++portalX)
-            {
-                for (int portalZ = bounds.getMinZ(); portalZ <= bounds.getMaxZ(); ++portalZ)
-                {
-                    double dx = portalX - destX;
-                    double dy = portalMinY - destY;
-                    double dz = portalZ - destZ;
-                    double distSq = dx * dx + dy * dy + dz * dz;
-
-                    if (distSq < bestDist)
-                    {
-                        bestDist = distSq;
-                        bestIndex = candidateIndex;
-                    }
-                }
-            }
-        }
-
-        return bestIndex;
+        return targetCandidates.findClosest(destX, destY, destZ, linkTarget.searchRadius);
     }
 
-    private static boolean isOutsideSearchSquare(PortalBounds bounds, int destX, int destZ, int radius)
+    private static PortalBounds computePortalBounds(PlacementKey key)
     {
-        return bounds.getMaxX() < destX - radius || bounds.getMinX() > destX + radius ||
-               bounds.getMaxZ() < destZ - radius || bounds.getMinZ() > destZ + radius;
-    }
-
-    private static Placement computePlacement(PlayerEntity player)
-    {
-        BlockPos basePos = BlockPos.ofFloored(player.getX(), player.getY(), player.getZ());
-        Direction facing = player.getHorizontalFacing();
-        Direction left = facing.rotateYCounterclockwise();
-        Direction right = facing.rotateYClockwise();
-
-        double centerX = basePos.getX() + 0.5D;
-        double centerZ = basePos.getZ() + 0.5D;
-        double offsetX = player.getX() - centerX;
-        double offsetZ = player.getZ() - centerZ;
-        double leftDot = offsetX * left.getOffsetX() + offsetZ * left.getOffsetZ();
-        boolean leftSide = leftDot >= 0.0D;
-
-        BlockPos otherColumn = leftSide ? basePos.offset(left) : basePos.offset(right);
+        BlockPos basePos = key.basePos;
+        Direction facing = key.facing;
+        Direction side = key.leftSide ? facing.rotateYCounterclockwise() : facing.rotateYClockwise();
+        BlockPos otherColumn = basePos.offset(side);
         int minY = basePos.getY();
         int maxY = minY + 2;
         int minX;
@@ -238,9 +215,7 @@ public final class PortalLinkPreview
             maxZ = Math.max(basePos.getZ(), otherColumn.getZ());
         }
 
-        PortalBounds portalBounds = new PortalBounds(minX, minY, minZ, maxX, maxY, maxZ);
-        LongOpenHashSet frameBlocks = buildFrameBlocks(portalBounds, facing, basePos);
-        return new Placement(portalBounds, frameBlocks);
+        return new PortalBounds(minX, minY, minZ, maxX, maxY, maxZ);
     }
 
     private static LongOpenHashSet buildFrameBlocks(PortalBounds portalBounds, Direction facing, BlockPos basePos)
@@ -306,11 +281,29 @@ public final class PortalLinkPreview
         }
     }
 
-    private record LinkTarget(String sourceDimensionId, double scale, int searchRadius)
+    private record LinkTarget(PortalDimension sourceDimension, double scale, int searchRadius)
+    {
+    }
+
+    private record PlacementKey(BlockPos basePos, Direction facing, boolean leftSide)
     {
+        private static PlacementKey of(PlayerEntity player)
+        {
+            BlockPos basePos = BlockPos.ofFloored(player.getX(), player.getY(), player.getZ());
+            Direction facing = player.getHorizontalFacing();
+            Direction left = facing.rotateYCounterclockwise();
+
+            double centerX = basePos.getX() + 0.5D;
+            double centerZ = basePos.getZ() + 0.5D;
+            double offsetX = player.getX() - centerX;
+            double offsetZ = player.getZ() - centerZ;
+            double leftDot = offsetX * left.getOffsetX() + offsetZ * left.getOffsetZ();
+
+            return new PlacementKey(basePos, facing, leftDot >= 0.0D);
+        }
     }
 
-    private record Placement(PortalBounds portalBounds, LongOpenHashSet frameBlocks)
+    private record PreviewKey(PortalDimension dimension, PortalBounds placementBounds, long storeVersion, BorderInfo border)
     {
     }
 }
@@ -0,0 +1,57 @@
+package ninja.trek.portal;
+
+import org.jetbrains.annotations.Nullable;
+import net.minecraft.client.MinecraftClient;
+
+public class PortalPreviewService
+{
+    private static final PortalPreviewService INSTANCE = new PortalPreviewService();
+
+    @Nullable private PortalLinkPreview.PlacementPreview placement;
+    private int revision;
+
+    public static PortalPreviewService getInstance()
+    {
+        return INSTANCE;
+    }
+
+    // Computes the placement once per client tick, both the HUD and the ghost frame read the published value.
+    // With neither of them showing anything there is nothing to compute, and no stale placement is kept.
+    public void tick(MinecraftClient mc)
+    {
+        if (PortalHudRenderer.getInstance().isActive(mc) == false && PortalGhostRenderer.INSTANCE.shouldRender(mc) == false)
+        {
+            this.reset();
+            return;
+        }
+
+        PortalLinkPreview.PlacementPreview next = PortalLinkPreview.computePlacementPreview(mc, this.placement);
+
+        if (next != this.placement)
+        {
+            this.placement = next;
+            ++this.revision;
+        }
+    }
+
+    public void reset()
+    {
+        if (this.placement != null)
+        {
+            this.placement = null;
+            ++this.revision;
+        }
+    }
+
+    @Nullable
+    public PortalLinkPreview.PlacementPreview getPlacement()
+    {
+        return this.placement;
+    }
+
+    // Changes whenever a different placement is published
+    public int getRevision()
+    {
+        return this.revision;
+    }
+}
@@ -0,0 +1,78 @@
+package ninja.trek.portal;
+
+public class PortalScanScheduler
+{
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+    private static final double COST_SMOOTHING = 0.2D;
+
+    private double averageChunkNanos;
+    private long windowStartNanos = -1L;
+    private int windowScans;
+    private double chunksPerSecond;
+    private long budgetOverruns;
+
+    public void reset()
+    {
+        this.averageChunkNanos = 0.0D;
+        this.windowStartNanos = -1L;
+        this.windowScans = 0;
+        this.chunksPerSecond = 0.0D;
+        this.budgetOverruns = 0L;
+    }
+
+    // Keeps draining while the next chunk, at the smoothed per-chunk cost, is expected to fit the budget
+    public boolean hasBudgetFor(long tickStartNanos, long nowNanos, long budgetNanos, int scannedThisTick)
+    {
+        // Always make progress, otherwise a budget below the cost of one chunk would stall the queue
+        if (scannedThisTick == 0)
+        {
+            return true;
+        }
+
+        return (nowNanos - tickStartNanos) + this.averageChunkNanos <= budgetNanos;
+    }
+
+    public void recordScan(long costNanos)
+    {
+        if (this.averageChunkNanos <= 0.0D)
+        {
+            this.averageChunkNanos = costNanos;
+        }
+        else
+        {
+            this.averageChunkNanos += (costNanos - this.averageChunkNanos) * COST_SMOOTHING;
+        }
+    }
+
+    public void endTick(long tickStartNanos, long nowNanos, long budgetNanos, int scannedThisTick)
+    {
+        if (scannedThisTick > 0 && nowNanos - tickStartNanos > budgetNanos)
+        {
+            ++this.budgetOverruns;
+        }
+
+        if (this.windowStartNanos < 0L)
+        {
+            this.windowStartNanos = tickStartNanos;
+        }
+
+        this.windowScans += scannedThisTick;
+        long windowLength = nowNanos - this.windowStartNanos;
+
+        if (windowLength >= RATE_WINDOW_NANOS)
+        {
+            this.chunksPerSecond = this.windowScans * 1.0E9D / windowLength;
+            this.windowStartNanos = nowNanos;
+            this.windowScans = 0;
+        }
+    }
+
+    public Stats getStats(int queueDepth)
+    {
+        return new Stats(queueDepth, this.chunksPerSecond, this.averageChunkNanos, this.budgetOverruns);
+    }
+
+    public record Stats(int queueDepth, double chunksPerSecond, double averageChunkNanos, long budgetOverruns)
+    {
+    }
+}
@@ -0,0 +1,210 @@
+package ninja.trek.portal;
+
+import java.util.function.Predicate;
+import org.jetbrains.annotations.Nullable;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+public class PortalScanSnapshot
+{
+    private static final Predicate<BlockState> IS_PORTAL = state -> state.isOf(Blocks.NETHER_PORTAL);
+
+    private final ChunkPos chunkPos;
+    private final PortalDimension dimension;
+    private final int bottomY;
+    private final int topY;
+    private final IntArrayList candidateSectionYs = new IntArrayList();
+    private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>();
+
+    private PortalScanSnapshot(ChunkPos chunkPos, PortalDimension dimension, int bottomY, int topY)
+    {
+        this.chunkPos = chunkPos;
+        this.dimension = dimension;
+        this.bottomY = bottomY;
+        this.topY = topY;
+    }
+
+    // Must be called on the client thread, the returned snapshot can then be read from any thread
+    public static PortalScanSnapshot capture(World world, ChunkPos chunkPos)
+    {
+        PortalDimension dimension = PortalDimension.of(world);
+        PortalScanSnapshot snapshot = new PortalScanSnapshot(chunkPos, dimension, world.getBottomY(), world.getTopYInclusive());
+        WorldChunk center = getLoadedChunk(world, chunkPos.x, chunkPos.z);
+
+        if (center == null)
+        {
+            return snapshot;
+        }
+
+        snapshot.copyPortalSections(center, true);
+
+        if (snapshot.candidateSectionYs.isEmpty())
+        {
+            return snapshot;
+        }
+
+        // The flood fill steps one block at a time, so it can only leave a chunk through a portal block on
+        // one of its edges. Follow those edges to copy every loaded chunk the portals of this chunk can reach,
+        // however far a cluster spreads, without copying the chunks around it that it never enters.
+        LongOpenHashSet visited = new LongOpenHashSet();
+        LongArrayFIFOQueue pending = new LongArrayFIFOQueue();
+        visited.add(chunkPos.toLong());
+        pending.enqueue(chunkPos.toLong());
+
+        while (pending.isEmpty() == false)
+        {
+            long packed = pending.dequeueLong();
+            int chunkX = ChunkPos.getPackedX(packed);
+            int chunkZ = ChunkPos.getPackedZ(packed);
+
+            for (Direction side : Direction.Type.HORIZONTAL)
+            {
+                int neighborX = chunkX + side.getOffsetX();
+                int neighborZ = chunkZ + side.getOffsetZ();
+                long neighbor = ChunkPos.toLong(neighborX, neighborZ);
+
+                if (visited.contains(neighbor) || snapshot.hasPortalOnEdge(chunkX, chunkZ, side) == false)
+                {
+                    continue;
+                }
+
+                visited.add(neighbor);
+                WorldChunk chunk = getLoadedChunk(world, neighborX, neighborZ);
+
+                if (chunk != null)
+                {
+                    snapshot.copyPortalSections(chunk, false);
+                    pending.enqueue(neighbor);
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    public ChunkPos getChunkPos()
+    {
+        return this.chunkPos;
+    }
+
+    public PortalDimension getDimension()
+    {
+        return this.dimension;
+    }
+
+    public int getBottomY()
+    {
+        return this.bottomY;
+    }
+
+    public int getTopY()
+    {
+        return this.topY;
+    }
+
+    public boolean hasCandidateSections()
+    {
+        return this.candidateSectionYs.isEmpty() == false;
+    }
+
+    public IntArrayList getCandidateSectionYs()
+    {
+        return this.candidateSectionYs;
+    }
+
+    // Null for positions in unloaded chunks and in sections that cannot contain portal blocks
+    @Nullable
+    public BlockState getBlockState(int x, int y, int z)
+    {
+        if (y < this.bottomY || y > this.topY)
+        {
+            return null;
+        }
+
+        long key = ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4);
+        PalettedContainer<BlockState> container = this.sections.get(key);
+
+        if (container == null)
+        {
+            return null;
+        }
+
+        return container.get(x & 15, y & 15, z & 15);
+    }
+
+    // True if a copied section of the chunk has a portal block in its outermost column of blocks on that side
+    private boolean hasPortalOnEdge(int chunkX, int chunkZ, Direction side)
+    {
+        int edgeX = side == Direction.EAST ? 15 : 0;
+        int edgeZ = side == Direction.SOUTH ? 15 : 0;
+        boolean alongX = side.getAxis() == Direction.Axis.Z;
+
+        for (int sectionY = this.bottomY >> 4; sectionY <= this.topY >> 4; ++sectionY)
+        {
+            PalettedContainer<BlockState> container = this.sections.get(ChunkSectionPos.asLong(chunkX, sectionY, chunkZ));
+
+            if (container == null)
+            {
+                continue;
+            }
+
+            for (int y = 0; y < 16; ++y)
+            {
+                for (int i = 0; i < 16; ++i)
+                {
+                    BlockState state = alongX ? container.get(i, y, edgeZ) : container.get(edgeX, y, i);
+
+                    if (state.isOf(Blocks.NETHER_PORTAL))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void copyPortalSections(WorldChunk chunk, boolean center)
+    {
+        ChunkPos pos = chunk.getPos();
+        ChunkSection[] chunkSections = chunk.getSectionArray();
+
+        for (int index = 0; index < chunkSections.length; ++index)
+        {
+            ChunkSection section = chunkSections[index];
+
+            // Sections without a portal entry in their palette read as empty in the snapshot
+            if (section == null || section.isEmpty() || section.hasAny(IS_PORTAL) == false)
+            {
+                continue;
+            }
+
+            int sectionY = chunk.sectionIndexToCoord(index);
+            this.sections.put(ChunkSectionPos.asLong(pos.x, sectionY, pos.z), section.getBlockStateContainer().copy());
+
+            if (center)
+            {
+                this.candidateSectionYs.add(sectionY);
+            }
+        }
+    }
+
+    @Nullable
+    private static WorldChunk getLoadedChunk(World world, int chunkX, int chunkZ)
+    {
+        return (WorldChunk) world.getChunk(chunkX, chunkZ, ChunkStatus.FULL, false);
+    }
+}
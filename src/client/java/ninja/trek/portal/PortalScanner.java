@@ -1,30 +1,47 @@
 package ninja.trek.portal;
 
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.List;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
+import net.minecraft.block.NetherPortalBlock;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.ChunkStatus;
-import net.minecraft.world.chunk.WorldChunk;
 
 public class PortalScanner
 {
     private static final PortalScanner INSTANCE = new PortalScanner();
-    private static final int MAX_SCANS_PER_TICK = 1;
-    private static final EnumSet<Direction> NEIGHBORS = EnumSet.allOf(Direction.class);
+    private static final Logger LOGGER = LogManager.getLogger("minihud-portal");
+    private static final ThreadLocal<FloodFill> FLOOD_FILL = ThreadLocal.withInitial(FloodFill::new);
+    private static final int MAX_JOBS_IN_FLIGHT = 256;
 
     private final LongOpenHashSet queuedChunks = new LongOpenHashSet();
     private final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+    private final PortalScanScheduler scheduler = new PortalScanScheduler();
+    private final ConcurrentLinkedQueue<ScanResult> completed = new ConcurrentLinkedQueue<>();
+    private final Long2IntOpenHashMap latestSequenceByChunk = new Long2IntOpenHashMap();
+    @Nullable private ThreadPoolExecutor workers;
+    private int generation;
+    private int nextSequence;
+    private int jobsInFlight;
 
     public static PortalScanner getInstance()
     {
@@ -35,6 +52,36 @@ public class PortalScanner
     {
         this.queuedChunks.clear();
         this.queue.clear();
+        this.scheduler.reset();
+
+        // Snapshots that are still waiting for a worker belong to the previous world, don't scan them at all
+        if (this.workers != null)
+        {
+            this.workers.getQueue().clear();
+        }
+
+        // Results of jobs that are still running belong to the previous world, drop them on arrival
+        ++this.generation;
+        this.completed.clear();
+        this.latestSequenceByChunk.clear();
+        this.jobsInFlight = 0;
+    }
+
+    // Leaving the world also stops the worker threads, the next scan starts a new pool
+    public void shutdown()
+    {
+        this.reset();
+
+        if (this.workers != null)
+        {
+            this.workers.shutdownNow();
+            this.workers = null;
+        }
+    }
+
+    public PortalScanScheduler.Stats getStats()
+    {
+        return this.scheduler.getStats(this.queue.size());
     }
 
     public void onChunkLoaded(int chunkX, int chunkZ)
@@ -61,10 +108,8 @@ public class PortalScanner
             return;
         }
 
-        String dimensionId = world.getRegistryKey().getValue().toString();
-
         if (state.isOf(Blocks.NETHER_PORTAL) ||
-            PortalDataStore.getInstance().intersectsTrackedPortal(dimensionId, pos))
+            PortalDataStore.getInstance().intersectsTrackedPortal(PortalDimension.of(world), pos))
         {
             this.enqueueChunk(new ChunkPos(pos));
         }
@@ -72,17 +117,44 @@ public class PortalScanner
 
     public void tick(MinecraftClient mc)
     {
-        if (mc.world == null || this.queue.isEmpty() || PortalDataStore.getInstance().getZoneSettings().isPortalScanningDisabled())
+        PortalZoneSettings settings = PortalDataStore.getInstance().getZoneSettings();
+
+        if (mc.world == null || settings.isPortalScanningDisabled())
         {
             return;
         }
 
-        for (int i = 0; i < MAX_SCANS_PER_TICK && this.queue.isEmpty() == false; ++i)
+        long budgetNanos = settings.getScanBudgetNanos();
+        long tickStart = System.nanoTime();
+
+        this.mergeCompletedScans(mc.world);
+
+        long now = System.nanoTime();
+        int scanned = 0;
+
+        while (this.queue.isEmpty() == false && this.jobsInFlight < MAX_JOBS_IN_FLIGHT &&
+               this.scheduler.hasBudgetFor(tickStart, now, budgetNanos, scanned))
         {
             long packed = this.queue.dequeueLong();
             this.queuedChunks.remove(packed);
             ChunkPos chunkPos = new ChunkPos(packed);
-            this.scanChunk(mc.world, chunkPos);
+            this.submitChunk(mc.world, chunkPos);
+
+            long end = System.nanoTime();
+            this.scheduler.recordScan(end - now);
+            now = end;
+            ++scanned;
+        }
+
+        this.scheduler.endTick(tickStart, now, budgetNanos, scanned);
+
+        if (scanned > 0 && this.queue.isEmpty() && LOGGER.isDebugEnabled())
+        {
+            PortalScanScheduler.Stats stats = this.getStats();
+            LOGGER.debug("Portal scan queue drained (chunks/s={}, avgChunkNanos={}, budgetOverruns={})",
+                    String.format(Locale.ROOT, "%.1f", stats.chunksPerSecond()),
+                    (long) stats.averageChunkNanos(),
+                    stats.budgetOverruns());
         }
     }
 
@@ -96,115 +168,263 @@ public class PortalScanner
         }
     }
 
-    private void scanChunk(World world, ChunkPos chunkPos)
+    private void submitChunk(World world, ChunkPos chunkPos)
     {
-        List<PortalSnapshot> snapshots = new ArrayList<>();
-        LongOpenHashSet visited = new LongOpenHashSet();
-        BlockPos.Mutable mutablePos = new BlockPos.Mutable();
+        PortalScanSnapshot snapshot = PortalScanSnapshot.capture(world, chunkPos);
+        long packed = chunkPos.toLong();
+        int sequence = ++this.nextSequence;
+        // A newer scan of the same chunk supersedes any job that is still running for it
+        this.latestSequenceByChunk.put(packed, sequence);
 
-        int minY = world.getBottomY();
-        int maxY = world.getTopYInclusive();
-        int startX = chunkPos.getStartX();
-        int startZ = chunkPos.getStartZ();
+        if (snapshot.hasCandidateSections() == false)
+        {
+            // Nothing to flood-fill, only the removal pass of the store needs to run
+            this.mergeScan(world, new ScanResult(snapshot.getDimension(), chunkPos, this.generation, sequence, List.of()));
+            return;
+        }
+
+        int jobGeneration = this.generation;
+
+        try
+        {
+            this.getWorkers().execute(() -> this.scanSnapshot(snapshot, jobGeneration, sequence));
+            ++this.jobsInFlight;
+        }
+        catch (RejectedExecutionException e)
+        {
+            LOGGER.warn("Portal scan of chunk {} was rejected by the worker pool", chunkPos, e);
+            this.latestSequenceByChunk.remove(packed);
+        }
+    }
+
+    private void mergeCompletedScans(World world)
+    {
+        ScanResult result;
 
-        for (int y = minY; y <= maxY; y += 3)
+        while ((result = this.completed.poll()) != null)
         {
-            for (int z = 0; z < 16; ++z)
+            if (result.generation() != this.generation)
             {
-                for (int x = 0; x < 16; ++x)
-                {
-                    mutablePos.set(startX + x, y, startZ + z);
-                    long packed = mutablePos.asLong();
+                continue;
+            }
 
-                    if (visited.contains(packed))
-                    {
-                        continue;
-                    }
+            --this.jobsInFlight;
+            this.mergeScan(world, result);
+        }
+    }
 
-                    BlockState state = this.getBlockStateIfLoaded(world, mutablePos);
+    private void mergeScan(World world, ScanResult result)
+    {
+        long packed = result.chunkPos().toLong();
 
-                    if (state != null && state.isOf(Blocks.NETHER_PORTAL))
-                    {
-                        PortalSnapshot snapshot = this.explorePortal(world, mutablePos.toImmutable(), visited);
+        if (this.latestSequenceByChunk.get(packed) != result.sequence())
+        {
+            return;
+        }
 
-                        if (snapshot != null)
-                        {
-                            snapshots.add(snapshot);
-                        }
-                    }
-                }
-            }
+        this.latestSequenceByChunk.remove(packed);
+
+        // Failed jobs have no portal list, leave the store untouched for that chunk
+        if (result.portals() == null)
+        {
+            return;
         }
 
-        String dimensionId = world.getRegistryKey().getValue().toString();
-        PortalDataStore.getInstance().updateFromSnapshots(dimensionId, chunkPos, snapshots, world);
+        PortalDataStore.getInstance().updateFromSnapshots(result.dimension(), result.chunkPos(), result.portals(), world);
     }
 
-    private PortalSnapshot explorePortal(World world, BlockPos start, LongOpenHashSet visited)
+    private ThreadPoolExecutor getWorkers()
     {
-        Deque<BlockPos> queue = new ArrayDeque<>();
-        queue.add(start);
+        if (this.workers == null)
+        {
+            int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+            AtomicInteger threadIndex = new AtomicInteger();
+
+            // A fixed pool, with the queue at hand so reset() can drop the jobs that haven't started
+            this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "minihud-portal-scan-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
 
-        int minX = start.getX();
-        int minY = start.getY();
-        int minZ = start.getZ();
-        int maxX = start.getX();
-        int maxY = start.getY();
-        int maxZ = start.getZ();
-        boolean found = false;
+        return this.workers;
+    }
 
-        while (queue.isEmpty() == false)
+    // Runs on a worker thread, must only read from the snapshot
+    private void scanSnapshot(PortalScanSnapshot snapshot, int jobGeneration, int sequence)
+    {
+        List<PortalSnapshot> portals = null;
+
+        try
+        {
+            portals = this.findPortals(snapshot);
+        }
+        catch (Exception e)
         {
-            BlockPos pos = queue.removeFirst();
-            long packed = pos.asLong();
+            LOGGER.warn("Failed to scan chunk {} for portals", snapshot.getChunkPos(), e);
+        }
+        finally
+        {
+            // The client thread only frees the jobsInFlight slot when it merges a result, so post one
+            // even if the scan died with an Error, a failed one without a portal list
+            this.completed.add(new ScanResult(snapshot.getDimension(), snapshot.getChunkPos(), jobGeneration, sequence, portals));
+        }
+    }
 
-            if (visited.contains(packed))
-            {
-                continue;
-            }
-            BlockState state = this.getBlockStateIfLoaded(world, pos);
+    private List<PortalSnapshot> findPortals(PortalScanSnapshot snapshot)
+    {
+        List<PortalSnapshot> portals = new ArrayList<>();
+        FloodFill fill = FLOOD_FILL.get();
+        IntArrayList sectionYs = snapshot.getCandidateSectionYs();
 
-            if (state == null || state.isOf(Blocks.NETHER_PORTAL) == false)
+        fill.begin();
+
+        try
+        {
+            for (int i = 0; i < sectionYs.size(); ++i)
             {
-                continue;
+                int sectionMinY = ChunkSectionPos.getBlockCoord(sectionYs.getInt(i));
+                this.scanSection(snapshot, sectionMinY, fill, portals);
             }
+        }
+        finally
+        {
+            fill.end();
+        }
 
-            visited.add(packed);
-            found = true;
+        return portals;
+    }
 
-            minX = Math.min(minX, pos.getX());
-            minY = Math.min(minY, pos.getY());
-            minZ = Math.min(minZ, pos.getZ());
-            maxX = Math.max(maxX, pos.getX());
-            maxY = Math.max(maxY, pos.getY());
-            maxZ = Math.max(maxZ, pos.getZ());
+    private void scanSection(PortalScanSnapshot snapshot, int sectionMinY, FloodFill fill, List<PortalSnapshot> portals)
+    {
+        ChunkPos chunkPos = snapshot.getChunkPos();
+        int startX = chunkPos.getStartX();
+        int startZ = chunkPos.getStartZ();
+        // Keep sampling every third layer counted from the world bottom, portals are at least 3 tall
+        int firstY = sectionMinY + Math.floorMod(snapshot.getBottomY() - sectionMinY, 3);
+        int maxY = Math.min(sectionMinY + 15, snapshot.getTopY());
 
-            for (Direction dir : NEIGHBORS)
+        for (int y = firstY; y <= maxY; y += 3)
+        {
+            for (int z = startZ; z < startZ + 16; ++z)
             {
-                BlockPos next = pos.offset(dir);
-                queue.addLast(next);
+                for (int x = startX; x < startX + 16; ++x)
+                {
+                    if (fill.visited.contains(BlockPos.asLong(x, y, z)))
+                    {
+                        continue;
+                    }
+
+                    BlockState state = snapshot.getBlockState(x, y, z);
+
+                    if (state != null && state.isOf(Blocks.NETHER_PORTAL))
+                    {
+                        portals.add(this.explorePortal(snapshot, x, y, z, state.get(NetherPortalBlock.AXIS), fill));
+                    }
+                }
             }
         }
+    }
+
+    private PortalSnapshot explorePortal(PortalScanSnapshot snapshot, int startX, int startY, int startZ,
+                                         Direction.Axis axis, FloodFill fill)
+    {
+        LongArrayFIFOQueue queue = fill.queue;
+        fill.add(BlockPos.asLong(startX, startY, startZ));
+
+        // Portal blocks are axis aligned, so a portal only spreads vertically and along its own axis
+        int stepX = axis == Direction.Axis.X ? 1 : 0;
+        int stepZ = axis == Direction.Axis.Z ? 1 : 0;
+        int minX = startX;
+        int minY = startY;
+        int minZ = startZ;
+        int maxX = startX;
+        int maxY = startY;
+        int maxZ = startZ;
 
-        if (found == false)
+        while (queue.isEmpty() == false)
         {
-            return null;
+            long packed = queue.dequeueLong();
+            int x = BlockPos.unpackLongX(packed);
+            int y = BlockPos.unpackLongY(packed);
+            int z = BlockPos.unpackLongZ(packed);
+
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+
+            this.visitPortalBlock(snapshot, x + stepX, y, z + stepZ, axis, fill);
+            this.visitPortalBlock(snapshot, x - stepX, y, z - stepZ, axis, fill);
+            this.visitPortalBlock(snapshot, x, y + 1, z, axis, fill);
+            this.visitPortalBlock(snapshot, x, y - 1, z, axis, fill);
         }
 
         return new PortalSnapshot(new PortalBounds(minX, minY, minZ, maxX, maxY, maxZ));
     }
 
-    private BlockState getBlockStateIfLoaded(World world, BlockPos pos)
+    private void visitPortalBlock(PortalScanSnapshot snapshot, int x, int y, int z, Direction.Axis axis, FloodFill fill)
     {
-        int chunkX = pos.getX() >> 4;
-        int chunkZ = pos.getZ() >> 4;
-        WorldChunk chunk = (WorldChunk) world.getChunk(chunkX, chunkZ, ChunkStatus.FULL, false);
+        long packed = BlockPos.asLong(x, y, z);
+
+        if (fill.visited.contains(packed))
+        {
+            return;
+        }
 
-        if (chunk == null)
+        BlockState state = snapshot.getBlockState(x, y, z);
+
+        if (state != null && state.isOf(Blocks.NETHER_PORTAL) && state.get(NetherPortalBlock.AXIS) == axis)
         {
-            return null;
+            fill.add(packed);
         }
+    }
 
-        return chunk.getBlockState(pos);
+    // Per worker thread buffers, reused for every chunk that thread scans
+    private static class FloodFill
+    {
+        private static final int RETAINED_CAPACITY = 4096;
+
+        private LongArrayFIFOQueue queue = new LongArrayFIFOQueue(RETAINED_CAPACITY);
+        private final LongOpenHashSet visited = new LongOpenHashSet();
+        private int peakQueued;
+
+        private void begin()
+        {
+            this.queue.clear();
+            this.visited.clear();
+            this.peakQueued = 0;
+        }
+
+        private void add(long packed)
+        {
+            this.visited.add(packed);
+            this.queue.enqueue(packed);
+            this.peakQueued = Math.max(this.peakQueued, this.queue.size());
+        }
+
+        private void end()
+        {
+            // Don't let one huge portal cluster pin a large table for the lifetime of the thread,
+            // but keep the usual size so the next fill doesn't have to grow the buffers again
+            this.queue.clear();
+
+            if (this.peakQueued > RETAINED_CAPACITY)
+            {
+                this.queue = new LongArrayFIFOQueue(RETAINED_CAPACITY);
+            }
+
+            this.visited.clear();
+            this.visited.trim(RETAINED_CAPACITY);
+        }
+    }
+
+    private record ScanResult(PortalDimension dimension, ChunkPos chunkPos, int generation, int sequence,
+                              @Nullable List<PortalSnapshot> portals)
+    {
     }
 }
@@ -0,0 +1,316 @@
+package ninja.trek.portal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraft.world.border.WorldBorder;
+
+// Everything the zone computation needs from the world, captured once on the render thread.
+// Instances are immutable so the worker threads can share one without copying or locking.
+public final class PortalSearchContext
+{
+    static final short NO_PORTAL = -1;
+    private static final int[] EMPTY_CELL = new int[0];
+
+    private final TargetDimension target;
+    private final int bottomY;
+    private final int topY;
+    private final double borderWest;
+    private final double borderEast;
+    private final double borderNorth;
+    private final double borderSouth;
+    private final List<PortalCandidate> portals;
+    private final List<PortalInfluence> influences;
+    private final PortalCandidateTable table;
+    // Destination space grid with cells the size of the search radius. Each cell lists, in index order,
+    // the portals whose search square overlaps it, which are the only ones that can win inside it.
+    private final int gridCellSize;
+    private final Long2ObjectOpenHashMap<int[]> candidateGrid;
+
+    private PortalSearchContext(TargetDimension target, int bottomY, int topY, WorldBorder border,
+                                List<PortalCandidate> portals)
+    {
+        this.target = target;
+        this.bottomY = bottomY;
+        this.topY = topY;
+        this.borderWest = border.getBoundWest();
+        this.borderEast = border.getBoundEast() - 1.0E-5D;
+        this.borderNorth = border.getBoundNorth();
+        this.borderSouth = border.getBoundSouth() - 1.0E-5D;
+        this.portals = List.copyOf(portals);
+        this.influences = List.copyOf(this.buildInfluences());
+        this.table = PortalCandidateTable.of(this.portals.stream().map(PortalCandidate::bounds).toList());
+        this.gridCellSize = Math.max(1, target.searchRadius());
+        this.candidateGrid = this.buildCandidateGrid();
+    }
+
+    public static PortalSearchContext create(World world, TargetDimension target, List<PortalEntry> entries)
+    {
+        return create(target, world.getBottomY(), world.getTopYInclusive(), world.getWorldBorder(), entries);
+    }
+
+    // Takes the world settings directly, so tests can build contexts without a world
+    static PortalSearchContext create(TargetDimension target, int bottomY, int topY, WorldBorder border, List<PortalEntry> entries)
+    {
+        List<PortalCandidate> portals = new ArrayList<>();
+
+        for (PortalEntry entry : entries)
+        {
+            if (entry.getDimension() == target.dimension())
+            {
+                portals.add(new PortalCandidate(entry.getBounds(), entry.getColor(), entry.getDimension()));
+            }
+        }
+
+        return new PortalSearchContext(target, bottomY, topY, border, portals);
+    }
+
+    public TargetDimension getTarget()
+    {
+        return this.target;
+    }
+
+    public int getBottomY()
+    {
+        return this.bottomY;
+    }
+
+    public int getTopY()
+    {
+        return this.topY;
+    }
+
+    public List<PortalCandidate> getPortals()
+    {
+        return this.portals;
+    }
+
+    // The bounds of getPortals() with the same indices, for the resolver loops
+    PortalCandidateTable getCandidateTable()
+    {
+        return this.table;
+    }
+
+    public List<PortalInfluence> getInfluences()
+    {
+        return this.influences;
+    }
+
+    // Approximate heap size of the portal lists, the candidate table and the grid, for the zone cache budget.
+    // The portal bounds themselves are shared with the data store and not counted.
+    public long getSizeInBytes()
+    {
+        // A candidate or influence record plus its list slot, and per grid cell the map slots plus the array header
+        long bytes = this.portals.size() * 32L + this.influences.size() * 48L + this.table.getSizeInBytes();
+
+        for (int[] cell : this.candidateGrid.values())
+        {
+            bytes += 40L + cell.length * 4L;
+        }
+
+        return bytes;
+    }
+
+    // True if both contexts map positions the same way, so zones only differ where their portals do
+    public boolean hasSameWorld(PortalSearchContext other)
+    {
+        return this.target.equals(other.target) &&
+               this.bottomY == other.bottomY && this.topY == other.topY &&
+               this.borderWest == other.borderWest && this.borderEast == other.borderEast &&
+               this.borderNorth == other.borderNorth && this.borderSouth == other.borderSouth;
+    }
+
+    // Hash of everything the zones are computed from, in portal order, so stored zones can be matched
+    // to a context without keeping the old portal list around. Portal colors don't affect the zones.
+    public long getFingerprint(boolean simpleMode)
+    {
+        long hash = mixHash(0L, this.target.dimension().getId().hashCode());
+        hash = mixHash(hash, Double.doubleToLongBits(this.target.scale()));
+        hash = mixHash(hash, this.target.searchRadius());
+        hash = mixHash(hash, this.bottomY);
+        hash = mixHash(hash, this.topY);
+        hash = mixHash(hash, Double.doubleToLongBits(this.borderWest));
+        hash = mixHash(hash, Double.doubleToLongBits(this.borderEast));
+        hash = mixHash(hash, Double.doubleToLongBits(this.borderNorth));
+        hash = mixHash(hash, Double.doubleToLongBits(this.borderSouth));
+        hash = mixHash(hash, simpleMode ? 1L : 0L);
+        hash = mixHash(hash, this.portals.size());
+
+        for (PortalCandidate portal : this.portals)
+        {
+            hash = mixHash(hash, ((long) portal.minX() << 32) | (portal.maxX() & 0xFFFFFFFFL));
+            hash = mixHash(hash, ((long) portal.minY() << 32) | (portal.maxY() & 0xFFFFFFFFL));
+            hash = mixHash(hash, ((long) portal.minZ() << 32) | (portal.maxZ() & 0xFFFFFFFFL));
+        }
+
+        return hash;
+    }
+
+    private static long mixHash(long hash, long value)
+    {
+        return HashCommon.mix(hash * 0x9E3779B97F4A7C15L + value);
+    }
+
+    int clampX(double x)
+    {
+        return MathHelper.floor(MathHelper.clamp(x, this.borderWest, this.borderEast));
+    }
+
+    int clampZ(double z)
+    {
+        return MathHelper.floor(MathHelper.clamp(z, this.borderNorth, this.borderSouth));
+    }
+
+    // Indices, in ascending order, of the portals whose search square reaches any destination in the rectangle
+    int[] getCandidates(int destMinX, int destMaxX, int destMinZ, int destMaxZ)
+    {
+        int radius = this.target.searchRadius();
+        IntOpenHashSet found = new IntOpenHashSet();
+
+        for (int cellX = Math.floorDiv(destMinX, this.gridCellSize); cellX <= Math.floorDiv(destMaxX, this.gridCellSize); ++cellX)
+        {
+            for (int cellZ = Math.floorDiv(destMinZ, this.gridCellSize); cellZ <= Math.floorDiv(destMaxZ, this.gridCellSize); ++cellZ)
+            {
+                for (int portalIndex : this.getCell(cellX, cellZ))
+                {
+                    if (this.table.getMaxX(portalIndex) >= destMinX - radius && this.table.getMinX(portalIndex) <= destMaxX + radius &&
+                        this.table.getMaxZ(portalIndex) >= destMinZ - radius && this.table.getMinZ(portalIndex) <= destMaxZ + radius)
+                    {
+                        found.add(portalIndex);
+                    }
+                }
+            }
+        }
+
+        int[] candidates = found.toIntArray();
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    private int[] getCell(int cellX, int cellZ)
+    {
+        int[] cell = this.candidateGrid.get(packCell(cellX, cellZ));
+        return cell != null ? cell : EMPTY_CELL;
+    }
+
+    private Long2ObjectOpenHashMap<int[]> buildCandidateGrid()
+    {
+        Long2ObjectOpenHashMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+        int radius = this.target.searchRadius();
+
+        for (int i = 0; i < this.table.size(); ++i)
+        {
+            for (int cellX = Math.floorDiv(this.table.getMinX(i) - radius, this.gridCellSize); cellX <= Math.floorDiv(this.table.getMaxX(i) + radius, this.gridCellSize); ++cellX)
+            {
+                for (int cellZ = Math.floorDiv(this.table.getMinZ(i) - radius, this.gridCellSize); cellZ <= Math.floorDiv(this.table.getMaxZ(i) + radius, this.gridCellSize); ++cellZ)
+                {
+                    cells.computeIfAbsent(packCell(cellX, cellZ), key -> new IntArrayList()).add(i);
+                }
+            }
+        }
+
+        Long2ObjectOpenHashMap<int[]> grid = new Long2ObjectOpenHashMap<>(cells.size());
+
+        for (Long2ObjectMap.Entry<IntArrayList> entry : cells.long2ObjectEntrySet())
+        {
+            grid.put(entry.getLongKey(), entry.getValue().toIntArray());
+        }
+
+        return grid;
+    }
+
+    private static long packCell(int cellX, int cellZ)
+    {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private List<PortalInfluence> buildInfluences()
+    {
+        List<PortalInfluence> influences = new ArrayList<>(this.portals.size());
+
+        for (PortalCandidate portal : this.portals)
+        {
+            PortalBounds bounds = portal.bounds();
+            double minDestX = bounds.getMinX() - this.target.searchRadius();
+            double maxDestX = bounds.getMaxX() + this.target.searchRadius();
+            double minDestZ = bounds.getMinZ() - this.target.searchRadius();
+            double maxDestZ = bounds.getMaxZ() + this.target.searchRadius();
+            int minSourceX = toSourceMin(minDestX, this.target.scale());
+            int maxSourceX = toSourceMax(maxDestX, this.target.scale());
+            int minSourceZ = toSourceMin(minDestZ, this.target.scale());
+            int maxSourceZ = toSourceMax(maxDestZ, this.target.scale());
+
+            int minX = Math.min(minSourceX, maxSourceX);
+            int maxX = Math.max(minSourceX, maxSourceX);
+            int minZ = Math.min(minSourceZ, maxSourceZ);
+            int maxZ = Math.max(minSourceZ, maxSourceZ);
+
+            influences.add(new PortalInfluence(minX, maxX, this.bottomY, this.topY, minZ, maxZ));
+        }
+
+        return influences;
+    }
+
+    private static int toSourceMin(double dest, double scale)
+    {
+        return (int) Math.ceil(dest / scale - 0.5D);
+    }
+
+    private static int toSourceMax(double dest, double scale)
+    {
+        double upper = (dest + 1.0D) / scale - 0.5D;
+        upper = Math.nextAfter(upper, Double.NEGATIVE_INFINITY);
+        return (int) Math.floor(upper);
+    }
+
+    public record TargetDimension(PortalDimension dimension, double scale, int searchRadius)
+    {
+    }
+
+    public record PortalCandidate(PortalBounds bounds, int color, PortalDimension dimension)
+    {
+        int minX() { return this.bounds.getMinX(); }
+        int minY() { return this.bounds.getMinY(); }
+        int minZ() { return this.bounds.getMinZ(); }
+        int maxX() { return this.bounds.getMaxX(); }
+        int maxY() { return this.bounds.getMaxY(); }
+        int maxZ() { return this.bounds.getMaxZ(); }
+    }
+
+    public record PortalInfluence(int minX, int maxX, int minY, int maxY, int minZ, int maxZ)
+    {
+        boolean intersects(PortalInfluence other)
+        {
+            return this.maxX >= other.minX && this.minX <= other.maxX &&
+                   this.maxY >= other.minY && this.minY <= other.maxY &&
+                   this.maxZ >= other.minZ && this.minZ <= other.maxZ;
+        }
+
+        double distanceSq2D(double x, double z)
+        {
+            double clampedX = Math.max(this.minX, Math.min(this.maxX, x));
+            double clampedZ = Math.max(this.minZ, Math.min(this.maxZ, z));
+            double dx = x - clampedX;
+            double dz = z - clampedZ;
+            return (dx * dx) + (dz * dz);
+        }
+
+        static PortalInfluence union(PortalInfluence first, PortalInfluence second)
+        {
+            int minX = Math.min(first.minX, second.minX);
+            int maxX = Math.max(first.maxX, second.maxX);
+            int minY = Math.min(first.minY, second.minY);
+            int maxY = Math.max(first.maxY, second.maxY);
+            int minZ = Math.min(first.minZ, second.minZ);
+            int maxZ = Math.max(first.maxZ, second.maxZ);
+            return new PortalInfluence(minX, maxX, minY, maxY, minZ, maxZ);
+        }
+    }
+}
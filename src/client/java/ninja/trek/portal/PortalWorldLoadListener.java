@@ -28,16 +28,23 @@ public class PortalWorldLoadListener implements IWorldLoadListener
         if (worldAfter == null)
         {
             PortalDataStore.getInstance().clear();
-            PortalScanner.getInstance().reset();
+            PortalScanner.getInstance().shutdown();
             PortalZoneRenderer.INSTANCE.resetState();
+            PortalZoneRenderer.INSTANCE.clearZoneCache();
+            PortalLinkPreview.invalidate();
+            PortalPreviewService.getInstance().reset();
             return;
         }
 
         PortalScanner.getInstance().reset();
+        // Dimension changes keep the cached zones of the dimension being left
         PortalZoneRenderer.INSTANCE.resetState();
+        PortalLinkPreview.invalidate();
+        PortalPreviewService.getInstance().reset();
 
         if (worldBefore == null)
         {
+            PortalZoneRenderer.INSTANCE.clearZoneCache();
             PortalDataStore.getInstance().load();
         }
     }
@@ -0,0 +1,316 @@
+package ninja.trek.portal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.ChunkSectionPos;
+
+// The boundary voxels of one portal zone, stored as run-length encoded Y spans per X/Z column.
+// Columns are sorted by Z then X, so the X neighbors of a column sit right next to it in the arrays.
+// A zone wall that used to be hundreds of thousands of packed positions is a few ints per column.
+public final class PortalZoneBoundary
+{
+    private final long[] columns;
+    private final int[] spanStarts;
+    private final int[] spanMinYs;
+    private final int[] spanMaxYs;
+
+    private PortalZoneBoundary(long[] columns, int[] spanStarts, int[] spanMinYs, int[] spanMaxYs)
+    {
+        this.columns = columns;
+        this.spanStarts = spanStarts;
+        this.spanMinYs = spanMinYs;
+        this.spanMaxYs = spanMaxYs;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.columns.length == 0;
+    }
+
+    public int getColumnCount()
+    {
+        return this.columns.length;
+    }
+
+    public int getSpanCount()
+    {
+        return this.spanMinYs.length;
+    }
+
+    // Approximate heap size of the arrays, used to bound caches of finished zones
+    public long getSizeInBytes()
+    {
+        return (this.columns.length * 8L) + (this.spanStarts.length * 4L) + (this.spanMinYs.length * 8L);
+    }
+
+    public int getColumnX(int column)
+    {
+        return (int) this.columns[column] ^ Integer.MIN_VALUE;
+    }
+
+    public int getColumnZ(int column)
+    {
+        return (int) (this.columns[column] >> 32);
+    }
+
+    // Index of the column at x/z, or -1 if the zone has no boundary voxels there
+    public int findColumn(int x, int z)
+    {
+        long key = packColumn(x, z);
+        int low = 0;
+        int high = this.columns.length - 1;
+
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            long value = this.columns[middle];
+
+            if (value < key)
+            {
+                low = middle + 1;
+            }
+            else if (value > key)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    // Index of the first column at or after x/z in row order, or the column count if there is none
+    public int findColumnAtOrAfter(int x, int z)
+    {
+        long key = packColumn(x, z);
+        int low = 0;
+        int high = this.columns.length;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (this.columns[middle] < key)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    // Packed positions of the 16x16x16 sections that contain at least one boundary voxel
+    public LongOpenHashSet getSections()
+    {
+        LongOpenHashSet sections = new LongOpenHashSet();
+
+        for (int column = 0; column < this.columns.length; ++column)
+        {
+            int sectionX = this.getColumnX(column) >> 4;
+            int sectionZ = this.getColumnZ(column) >> 4;
+
+            for (int span = this.getSpanStart(column); span < this.getSpanEnd(column); ++span)
+            {
+                for (int sectionY = this.spanMinYs[span] >> 4; sectionY <= this.spanMaxYs[span] >> 4; ++sectionY)
+                {
+                    sections.add(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+                }
+            }
+        }
+
+        return sections;
+    }
+
+    public int getSpanStart(int column)
+    {
+        return this.spanStarts[column];
+    }
+
+    public int getSpanEnd(int column)
+    {
+        return this.spanStarts[column + 1];
+    }
+
+    public int getSpanMinY(int span)
+    {
+        return this.spanMinYs[span];
+    }
+
+    public int getSpanMaxY(int span)
+    {
+        return this.spanMaxYs[span];
+    }
+
+    public boolean contains(int x, int y, int z)
+    {
+        int column = this.findColumn(x, z);
+
+        if (column == -1)
+        {
+            return false;
+        }
+
+        for (int span = this.getSpanStart(column); span < this.getSpanEnd(column); ++span)
+        {
+            if (y >= this.spanMinYs[span] && y <= this.spanMaxYs[span])
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Columns are written as deltas, which are mostly 1 along a row and compress to almost nothing
+    public void write(DataOutputStream output) throws IOException
+    {
+        output.writeInt(this.columns.length);
+        output.writeInt(this.spanMinYs.length);
+        long previous = 0;
+
+        for (int column = 0; column < this.columns.length; ++column)
+        {
+            output.writeLong(this.columns[column] - previous);
+            output.writeInt(this.getSpanEnd(column) - this.getSpanStart(column));
+            previous = this.columns[column];
+        }
+
+        for (int span = 0; span < this.spanMinYs.length; ++span)
+        {
+            output.writeInt(this.spanMinYs[span]);
+            output.writeInt(this.spanMaxYs[span]);
+        }
+    }
+
+    public static PortalZoneBoundary read(DataInputStream input, int maxEntries) throws IOException
+    {
+        int columnCount = input.readInt();
+        int spanCount = input.readInt();
+
+        if (columnCount < 0 || spanCount < columnCount || spanCount > maxEntries)
+        {
+            throw new IOException("Invalid zone boundary size " + columnCount + "/" + spanCount);
+        }
+
+        long[] columns = new long[columnCount];
+        int[] spanStarts = new int[columnCount + 1];
+        int[] spanMinYs = new int[spanCount];
+        int[] spanMaxYs = new int[spanCount];
+        long previous = 0;
+
+        for (int column = 0; column < columnCount; ++column)
+        {
+            columns[column] = previous + input.readLong();
+            int spans = input.readInt();
+
+            if (spans <= 0 || (column > 0 && columns[column] <= previous) || spanStarts[column] + spans > spanCount)
+            {
+                throw new IOException("Invalid zone boundary column " + column);
+            }
+
+            spanStarts[column + 1] = spanStarts[column] + spans;
+            previous = columns[column];
+        }
+
+        if (spanStarts[columnCount] != spanCount)
+        {
+            throw new IOException("Invalid zone boundary span count " + spanCount);
+        }
+
+        for (int span = 0; span < spanCount; ++span)
+        {
+            spanMinYs[span] = input.readInt();
+            spanMaxYs[span] = input.readInt();
+        }
+
+        return new PortalZoneBoundary(columns, spanStarts, spanMinYs, spanMaxYs);
+    }
+
+    // Z in the high half and X offset to unsigned in the low half, so the natural long order is row by row
+    private static long packColumn(int x, int z)
+    {
+        return ((long) z << 32) | ((x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    // Collects spans in any order, possibly overlapping, and sorts and merges them on build
+    public static class Builder
+    {
+        private final LongArrayList columns = new LongArrayList();
+        private final IntArrayList minYs = new IntArrayList();
+        private final IntArrayList maxYs = new IntArrayList();
+
+        public void add(int x, int z, int minY, int maxY)
+        {
+            this.columns.add(packColumn(x, z));
+            this.minYs.add(minY);
+            this.maxYs.add(maxY);
+        }
+
+        public void addAll(Builder other)
+        {
+            this.columns.addAll(other.columns);
+            this.minYs.addAll(other.minYs);
+            this.maxYs.addAll(other.maxYs);
+        }
+
+        public PortalZoneBoundary build()
+        {
+            int count = this.columns.size();
+            int[] order = new int[count];
+
+            for (int i = 0; i < count; ++i)
+            {
+                order[i] = i;
+            }
+
+            IntArrays.quickSort(order, (first, second) -> {
+                int result = Long.compare(this.columns.getLong(first), this.columns.getLong(second));
+                return result != 0 ? result : Integer.compare(this.minYs.getInt(first), this.minYs.getInt(second));
+            });
+
+            LongArrayList columns = new LongArrayList();
+            IntArrayList spanStarts = new IntArrayList();
+            IntArrayList spanMinYs = new IntArrayList();
+            IntArrayList spanMaxYs = new IntArrayList();
+
+            for (int index : order)
+            {
+                long column = this.columns.getLong(index);
+                int minY = this.minYs.getInt(index);
+                int maxY = this.maxYs.getInt(index);
+                int last = spanMaxYs.size() - 1;
+
+                if (columns.isEmpty() || columns.getLong(columns.size() - 1) != column)
+                {
+                    columns.add(column);
+                    spanStarts.add(spanMinYs.size());
+                }
+                else if (minY <= spanMaxYs.getInt(last) + 1)
+                {
+                    // Overlapping or touching the previous span of the same column
+                    spanMaxYs.set(last, Math.max(spanMaxYs.getInt(last), maxY));
+                    continue;
+                }
+
+                spanMinYs.add(minY);
+                spanMaxYs.add(maxY);
+            }
+
+            spanStarts.add(spanMinYs.size());
+            return new PortalZoneBoundary(columns.toLongArray(), spanStarts.toIntArray(),
+                                          spanMinYs.toIntArray(), spanMaxYs.toIntArray());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ninja.trek.portal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+// Finished zone results of the dimensions the player isn't in, so going back through a portal doesn't
+// recompute every zone from scratch. Entries are kept in least recently stored order and the oldest ones
+// are dropped once the boundaries and search contexts of all entries together go over the memory budget.
+public class PortalZoneCache
+{
+    private static final long MAX_BYTES = 64L * 1024L * 1024L;
+
+    private final LinkedHashMap<PortalDimension, Entry> entries = new LinkedHashMap<>();
+    private long totalBytes;
+
+    public void put(PortalDimension dimension, Entry entry)
+    {
+        this.remove(dimension);
+
+        if (entry.bytes() > MAX_BYTES)
+        {
+            return;
+        }
+
+        this.entries.put(dimension, entry);
+        this.totalBytes += entry.bytes();
+
+        Iterator<Map.Entry<PortalDimension, Entry>> iterator = this.entries.entrySet().iterator();
+
+        while (this.totalBytes > MAX_BYTES && iterator.hasNext())
+        {
+            this.totalBytes -= iterator.next().getValue().bytes();
+            iterator.remove();
+        }
+    }
+
+    // Removes and returns the entry, the caller owns the boundaries from here on
+    @Nullable
+    public Entry take(PortalDimension dimension)
+    {
+        return this.remove(dimension);
+    }
+
+    public void clear()
+    {
+        this.entries.clear();
+        this.totalBytes = 0;
+    }
+
+    @Nullable
+    private Entry remove(PortalDimension dimension)
+    {
+        Entry entry = this.entries.remove(dimension);
+
+        if (entry != null)
+        {
+            this.totalBytes -= entry.bytes();
+        }
+
+        return entry;
+    }
+
+    // The zones computed from one search context, only valid for a context with the same world and portals
+    public record Entry(PortalSearchContext context, boolean simpleMode, Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries, long bytes)
+    {
+        public static Entry of(PortalSearchContext context, boolean simpleMode, Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries)
+        {
+            // The context is kept too, its grid and tables can outweigh the boundaries of small zones
+            long bytes = context.getSizeInBytes();
+
+            for (PortalZoneBoundary boundary : boundaries.values())
+            {
+                bytes += boundary.getSizeInBytes();
+            }
+
+            return new Entry(context, simpleMode, new Int2ObjectOpenHashMap<>(boundaries), bytes);
+        }
+    }
+}
@@ -0,0 +1,1014 @@
+package ninja.trek.portal;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import ninja.trek.portal.PortalSearchContext.PortalInfluence;
+import ninja.trek.portal.PortalSearchContext.TargetDimension;
+
+// Computes the zone boundary voxels of each portal on a fork-join pool. Groups are submitted from the
+// render thread together with an immutable search context, overlap groups are split into tiles of Z rows,
+// and the finished per-portal boundaries are handed back through a queue the render thread drains.
+public class PortalZoneComputer
+{
+    private static final Logger LOGGER = LogManager.getLogger("minihud-portal");
+    private static final short NO_PORTAL = PortalSearchContext.NO_PORTAL;
+    private static final int TILE_ROWS = 32;
+
+    private final ConcurrentLinkedQueue<GroupResult> completed = new ConcurrentLinkedQueue<>();
+    @Nullable private ForkJoinPool pool;
+    private volatile int generation;
+    private int groupsInFlight;
+
+    public void submit(PortalSearchContext context, List<PortalWorkGroup> groups, boolean simpleMode)
+    {
+        this.cancel();
+        int jobGeneration = this.generation;
+
+        for (PortalWorkGroup group : groups)
+        {
+            try
+            {
+                this.getPool().execute(() -> this.runGroup(context, group, simpleMode, jobGeneration));
+                ++this.groupsInFlight;
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOGGER.warn("Portal zone group was rejected by the worker pool", e);
+            }
+        }
+    }
+
+    // Like submit, but reads the zones from the cache file first. The groups are only computed
+    // if the file is missing or was written for different portals or world settings.
+    public void submitStored(PortalSearchContext context, List<PortalWorkGroup> groups, boolean simpleMode, Path cacheFile)
+    {
+        this.cancel();
+        int jobGeneration = this.generation;
+        long fingerprint = context.getFingerprint(simpleMode);
+
+        try
+        {
+            this.getPool().execute(() -> {
+                Int2ObjectOpenHashMap<PortalZoneBoundary> stored = null;
+
+                try
+                {
+                    stored = PortalZoneDiskCache.read(cacheFile, fingerprint, context.getPortals().size());
+                }
+                catch (Throwable e)
+                {
+                    // Every group still has to post a result, so treat it like a missing file
+                    LOGGER.warn("Failed to read the portal zone cache {}", cacheFile, e);
+                }
+
+                if (stored != null)
+                {
+                    for (PortalWorkGroup group : groups)
+                    {
+                        this.completed.add(GroupResult.stored(jobGeneration, group.portalIndices(), stored));
+                    }
+
+                    return;
+                }
+
+                // Forked one by one rather than with invokeAll, which would cancel the remaining groups
+                // without a result if one of them failed
+                for (PortalWorkGroup group : groups)
+                {
+                    ForkJoinTask.adapt(() -> this.runGroup(context, group, simpleMode, jobGeneration)).fork();
+                }
+            });
+            this.groupsInFlight += groups.size();
+        }
+        catch (RejectedExecutionException e)
+        {
+            LOGGER.warn("Portal zone cache load was rejected by the worker pool", e);
+        }
+    }
+
+    // Writes finished zones to the cache file in the background. The map is copied because the render thread
+    // keeps updating it, the boundaries themselves are immutable and are shared.
+    public void store(PortalSearchContext context, boolean simpleMode, Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries, Path cacheFile)
+    {
+        long fingerprint = context.getFingerprint(simpleMode);
+        Int2ObjectOpenHashMap<PortalZoneBoundary> snapshot = new Int2ObjectOpenHashMap<>(boundaries);
+
+        try
+        {
+            this.getPool().execute(() -> PortalZoneDiskCache.write(cacheFile, fingerprint, snapshot));
+        }
+        catch (RejectedExecutionException e)
+        {
+            LOGGER.warn("Portal zone cache write was rejected by the worker pool", e);
+        }
+    }
+
+    // Drops every running and finished job, results of older generations are ignored when polled
+    public void cancel()
+    {
+        ++this.generation;
+        this.completed.clear();
+        this.groupsInFlight = 0;
+    }
+
+    public boolean hasPendingGroups()
+    {
+        return this.groupsInFlight > 0;
+    }
+
+    public int getPendingGroups()
+    {
+        return this.groupsInFlight;
+    }
+
+    @Nullable
+    public GroupResult pollCompleted()
+    {
+        GroupResult result;
+
+        while ((result = this.completed.poll()) != null)
+        {
+            if (result.generation() == this.generation)
+            {
+                --this.groupsInFlight;
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    // Groups the portals whose influences overlap, directly or through other portals. Influences are bucketed
+    // into a grid with cells as large as the largest influence, so each one lands in at most four cells and is
+    // only tested against the few influences sharing them. Overlapping pairs are joined with a union-find.
+    // Groups list their portals in index order, which is the tie-break order of the zone resolution.
+    public static List<PortalWorkGroup> buildWorkGroups(List<PortalInfluence> influences)
+    {
+        if (influences.isEmpty())
+        {
+            return List.of();
+        }
+
+        int count = influences.size();
+        int cellSize = 1;
+
+        for (PortalInfluence influence : influences)
+        {
+            cellSize = Math.max(cellSize, Math.max(influence.maxX() - influence.minX() + 1, influence.maxZ() - influence.minZ() + 1));
+        }
+
+        int[] parents = new int[count];
+        Long2ObjectOpenHashMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+
+        for (int i = 0; i < count; ++i)
+        {
+            PortalInfluence influence = influences.get(i);
+            parents[i] = i;
+
+            for (int cellX = Math.floorDiv(influence.minX(), cellSize); cellX <= Math.floorDiv(influence.maxX(), cellSize); ++cellX)
+            {
+                for (int cellZ = Math.floorDiv(influence.minZ(), cellSize); cellZ <= Math.floorDiv(influence.maxZ(), cellSize); ++cellZ)
+                {
+                    long key = ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+                    IntArrayList cell = cells.get(key);
+
+                    if (cell == null)
+                    {
+                        cell = new IntArrayList();
+                        cells.put(key, cell);
+                    }
+
+                    for (int j = 0; j < cell.size(); ++j)
+                    {
+                        int other = cell.getInt(j);
+
+                        if (findRoot(parents, i) != findRoot(parents, other) && influence.intersects(influences.get(other)))
+                        {
+                            parents[findRoot(parents, i)] = findRoot(parents, other);
+                        }
+                    }
+
+                    cell.add(i);
+                }
+            }
+        }
+
+        // Groups come out in the order of their lowest portal index
+        Int2IntOpenHashMap groupByRoot = new Int2IntOpenHashMap();
+        groupByRoot.defaultReturnValue(-1);
+        List<IntArrayList> members = new ArrayList<>();
+        List<PortalInfluence> bounds = new ArrayList<>();
+
+        for (int i = 0; i < count; ++i)
+        {
+            int root = findRoot(parents, i);
+            int group = groupByRoot.get(root);
+
+            if (group == -1)
+            {
+                group = members.size();
+                groupByRoot.put(root, group);
+                members.add(new IntArrayList());
+                bounds.add(influences.get(i));
+            }
+
+            members.get(group).add(i);
+            bounds.set(group, PortalInfluence.union(bounds.get(group), influences.get(i)));
+        }
+
+        List<PortalWorkGroup> groups = new ArrayList<>(members.size());
+
+        for (int group = 0; group < members.size(); ++group)
+        {
+            groups.add(new PortalWorkGroup(members.get(group).toIntArray(), bounds.get(group)));
+        }
+
+        return groups;
+    }
+
+    private static int findRoot(int[] parents, int index)
+    {
+        while (parents[index] != index)
+        {
+            // Path halving keeps the trees flat without recursion
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+
+        return index;
+    }
+
+    private ForkJoinPool getPool()
+    {
+        if (this.pool == null)
+        {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            AtomicInteger threadIndex = new AtomicInteger();
+
+            this.pool = new ForkJoinPool(threads, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("minihud-portal-zones-" + threadIndex.incrementAndGet());
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, null, false);
+        }
+
+        return this.pool;
+    }
+
+    private boolean isStale(int jobGeneration)
+    {
+        return this.generation != jobGeneration;
+    }
+
+    // Posts exactly one result for the group, a failed one if the computation died in any way,
+    // so groupsInFlight always drops back to zero
+    private void runGroup(PortalSearchContext context, PortalWorkGroup group, boolean simpleMode, int jobGeneration)
+    {
+        GroupResult result;
+
+        try
+        {
+            result = this.computeGroup(context, group, simpleMode, jobGeneration);
+        }
+        catch (Throwable e)
+        {
+            LOGGER.error("Portal zone worker failed on a group of {} portals", group.portalIndices().length, e);
+            result = new GroupResult(jobGeneration, group.portalIndices(), null, false);
+        }
+
+        this.completed.add(result);
+    }
+
+    // Runs on a pool thread, must only read from the context. Failures are left to runGroup.
+    private GroupResult computeGroup(PortalSearchContext context, PortalWorkGroup group, boolean simpleMode, int jobGeneration)
+    {
+        Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> builders;
+
+        if (group.portalIndices().length == 1 || simpleMode)
+        {
+            // In simple mode, process each portal as isolated (show full influence without overlap calculations)
+            List<IsolatedPortalTask> tasks = new ArrayList<>(group.portalIndices().length);
+
+            for (int portalIndex : group.portalIndices())
+            {
+                tasks.add(new IsolatedPortalTask(portalIndex, context.getInfluences().get(portalIndex), jobGeneration));
+            }
+
+            builders = new Int2ObjectOpenHashMap<>();
+
+            for (IsolatedPortalTask task : ForkJoinTask.invokeAll(tasks))
+            {
+                merge(builders, task.join());
+            }
+        }
+        else
+        {
+            builders = this.computeOverlapGroup(context, group, jobGeneration);
+        }
+
+        Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = new Int2ObjectOpenHashMap<>(builders.size());
+
+        for (Int2ObjectMap.Entry<PortalZoneBoundary.Builder> entry : builders.int2ObjectEntrySet())
+        {
+            boundaries.put(entry.getIntKey(), entry.getValue().build());
+        }
+
+        return new GroupResult(jobGeneration, group.portalIndices(), boundaries, false);
+    }
+
+    private Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> computeOverlapGroup(PortalSearchContext context, PortalWorkGroup group,
+                                                                       int jobGeneration)
+    {
+        PortalInfluence bounds = group.bounds();
+        int minY = Math.max(bounds.minY(), context.getBottomY());
+        int maxY = Math.min(bounds.maxY(), context.getTopY());
+
+        if (minY > maxY)
+        {
+            return new Int2ObjectOpenHashMap<>();
+        }
+
+        return new OverlapTileTask(context, group, minY, maxY, bounds.minZ(), bounds.maxZ(), jobGeneration).invoke();
+    }
+
+    private static void merge(Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> into, Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> from)
+    {
+        for (Int2ObjectMap.Entry<PortalZoneBoundary.Builder> entry : from.int2ObjectEntrySet())
+        {
+            PortalZoneBoundary.Builder existing = into.get(entry.getIntKey());
+
+            if (existing == null)
+            {
+                into.put(entry.getIntKey(), entry.getValue());
+            }
+            else
+            {
+                existing.addAll(entry.getValue());
+            }
+        }
+    }
+
+    private static void addPortalSpan(Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> builders, int portalIndex,
+                                      int x, int z, int minY, int maxY)
+    {
+        PortalZoneBoundary.Builder builder = builders.get(portalIndex);
+
+        if (builder == null)
+        {
+            builder = new PortalZoneBoundary.Builder();
+            builders.put(portalIndex, builder);
+        }
+
+        builder.add(x, z, minY, maxY);
+    }
+
+    private class IsolatedPortalTask extends RecursiveTask<Int2ObjectOpenHashMap<PortalZoneBoundary.Builder>>
+    {
+        private final int portalIndex;
+        private final PortalInfluence influence;
+        private final int jobGeneration;
+
+        private IsolatedPortalTask(int portalIndex, PortalInfluence influence, int jobGeneration)
+        {
+            this.portalIndex = portalIndex;
+            this.influence = influence;
+            this.jobGeneration = jobGeneration;
+        }
+
+        @Override
+        protected Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> compute()
+        {
+            Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> builders = new Int2ObjectOpenHashMap<>();
+
+            if (isStale(this.jobGeneration))
+            {
+                return builders;
+            }
+
+            int portalIndex = this.portalIndex;
+            int minY = this.influence.minY();
+            int maxY = this.influence.maxY();
+            int minX = this.influence.minX();
+            int maxX = this.influence.maxX();
+            int minZ = this.influence.minZ();
+            int maxZ = this.influence.maxZ();
+
+            // Columns on the rim of the influence are solid walls, the ones inside only have the top and bottom face
+            for (int x = minX; x <= maxX; ++x)
+            {
+                for (int z = minZ; z <= maxZ; ++z)
+                {
+                    if (x == minX || x == maxX || z == minZ || z == maxZ)
+                    {
+                        addPortalSpan(builders, portalIndex, x, z, minY, maxY);
+                        continue;
+                    }
+
+                    addPortalSpan(builders, portalIndex, x, z, minY, minY);
+
+                    if (maxY > minY)
+                    {
+                        addPortalSpan(builders, portalIndex, x, z, maxY, maxY);
+                    }
+                }
+            }
+
+            return builders;
+        }
+    }
+
+    // Labels and collects the boundaries of the group rows fromZ..toZ, halving the range until it fits one tile.
+    // Each tile resolves its own one block halo, so tiles never read each other's labels.
+    private class OverlapTileTask extends RecursiveTask<Int2ObjectOpenHashMap<PortalZoneBoundary.Builder>>
+    {
+        private final PortalSearchContext context;
+        private final PortalWorkGroup group;
+        private final int minY;
+        private final int maxY;
+        private final int fromZ;
+        private final int toZ;
+        private final int jobGeneration;
+
+        private OverlapTileTask(PortalSearchContext context, PortalWorkGroup group, int minY, int maxY,
+                                int fromZ, int toZ, int jobGeneration)
+        {
+            this.context = context;
+            this.group = group;
+            this.minY = minY;
+            this.maxY = maxY;
+            this.fromZ = fromZ;
+            this.toZ = toZ;
+            this.jobGeneration = jobGeneration;
+        }
+
+        @Override
+        protected Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> compute()
+        {
+            if (isStale(this.jobGeneration))
+            {
+                return new Int2ObjectOpenHashMap<>();
+            }
+
+            if (this.toZ - this.fromZ + 1 > TILE_ROWS)
+            {
+                int middleZ = this.fromZ + (this.toZ - this.fromZ) / 2;
+                OverlapTileTask first = new OverlapTileTask(this.context, this.group, this.minY, this.maxY,
+                                                            this.fromZ, middleZ, this.jobGeneration);
+                OverlapTileTask second = new OverlapTileTask(this.context, this.group, this.minY, this.maxY,
+                                                             middleZ + 1, this.toZ, this.jobGeneration);
+                second.fork();
+                Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> builders = first.compute();
+                merge(builders, second.join());
+                return builders;
+            }
+
+            return this.computeTile();
+        }
+
+        private Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> computeTile()
+        {
+            PortalSearchContext context = this.context;
+            TargetDimension target = context.getTarget();
+            PortalInfluence bounds = this.group.bounds();
+            int minX = bounds.minX();
+            int maxX = bounds.maxX();
+
+            // Each column is labelled once as a list of Y intervals with their owning portal. The columns
+            // carry a one block halo so the edge columns of the tile can compare against their neighbors.
+            int originX = minX - 1;
+            int originZ = this.fromZ - 1;
+            int sizeX = maxX - minX + 3;
+            int sizeZ = this.toZ - this.fromZ + 3;
+            ColumnIntervals columns = new ColumnIntervals(sizeX * sizeZ);
+            ColumnResolver resolver = new ColumnResolver(this.group.portalIndices().length);
+            // When several source columns map onto one destination cell (1/8 scale from the overworld),
+            // resolve each destination cell once and let the other source columns share its intervals
+            Long2IntOpenHashMap resolvedCells = target.scale() < 1.0D ? new Long2IntOpenHashMap() : null;
+
+            if (resolvedCells != null)
+            {
+                resolvedCells.defaultReturnValue(-1);
+            }
+
+            // Along a long chain of portals only a few of the group reach any one tile
+            int[] candidates = intersect(context.getCandidates(context.clampX((originX + 0.5D) * target.scale()),
+                                                               context.clampX((originX + sizeX - 0.5D) * target.scale()),
+                                                               context.clampZ((originZ + 0.5D) * target.scale()),
+                                                               context.clampZ((originZ + sizeZ - 0.5D) * target.scale())),
+                                         this.group.portalIndices());
+            CellLabeller labeller = new CellLabeller(context, columns, resolver, resolvedCells, originX, originZ, sizeX, this.minY, this.maxY);
+            labeller.label(0, 0, sizeX - 1, sizeZ - 1, candidates);
+
+            Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> builders = new Int2ObjectOpenHashMap<>();
+
+            for (int z = this.fromZ; z <= this.toZ; ++z)
+            {
+                for (int x = minX; x <= maxX; ++x)
+                {
+                    int column = (z - originZ) * sizeX + (x - originX);
+                    addColumnBoundaries(builders, columns, column, sizeX, x, z);
+                }
+            }
+
+            return builders;
+        }
+    }
+
+    // Both arrays are in ascending index order, and so is the result
+    private static int[] intersect(int[] first, int[] second)
+    {
+        IntArrayList result = new IntArrayList(Math.min(first.length, second.length));
+        int i = 0;
+        int j = 0;
+
+        while (i < first.length && j < second.length)
+        {
+            if (first[i] < second[j])
+            {
+                ++i;
+            }
+            else if (first[i] > second[j])
+            {
+                ++j;
+            }
+            else
+            {
+                result.add(first[i]);
+                ++i;
+                ++j;
+            }
+        }
+
+        return result.toIntArray();
+    }
+
+    private static void addColumnBoundaries(Int2ObjectOpenHashMap<PortalZoneBoundary.Builder> builders, ColumnIntervals columns,
+                                            int column, int sizeX, int x, int z)
+    {
+        int[] neighbors = { column + 1, column - 1, column + sizeX, column - sizeX };
+
+        for (int i = columns.first(column); i < columns.end(column); ++i)
+        {
+            short zone = columns.owner(i);
+
+            if (zone == NO_PORTAL)
+            {
+                continue;
+            }
+
+            int startY = columns.startY(i);
+            int endY = columns.endY(i);
+
+            // Intervals are maximal runs, so the voxels at both ends border another zone or the world limit
+            addPortalSpan(builders, zone, x, z, startY, startY);
+
+            if (endY > startY)
+            {
+                addPortalSpan(builders, zone, x, z, endY, endY);
+            }
+
+            if (endY - startY < 2)
+            {
+                continue;
+            }
+
+            // Interior voxels are boundaries wherever a horizontal neighbor column has a different owner
+            for (int neighbor : neighbors)
+            {
+                // A neighbor sharing this column's intervals can't differ anywhere
+                if (columns.first(neighbor) == columns.first(column))
+                {
+                    continue;
+                }
+
+                for (int j = columns.first(neighbor); j < columns.end(neighbor); ++j)
+                {
+                    if (columns.owner(j) == zone)
+                    {
+                        continue;
+                    }
+
+                    int from = Math.max(startY + 1, columns.startY(j));
+                    int to = Math.min(endY - 1, columns.endY(j));
+
+                    if (from <= to)
+                    {
+                        addPortalSpan(builders, zone, x, z, from, to);
+                    }
+                }
+            }
+        }
+    }
+
+    // Branch and bound over the columns of a tile. A cell is a rectangle of columns over the full Y range of the
+    // group; if the portal with the smallest maximum distance over the cell covers all of it and that maximum
+    // beats the minimum distance of every other portal reaching the cell, each voxel of the cell goes to that
+    // portal and the cell becomes a single interval shared by all its columns. Cells no portal reaches go to
+    // no portal the same way. Any other cell is halved along its longer side, with only the portals that reach
+    // it passed down, until single columns are left for the ColumnResolver. Most of a group lies well inside
+    // one zone, so the resolving work follows the zone borders instead of the area of the group.
+    private static class CellLabeller
+    {
+        private final PortalSearchContext context;
+        private final ColumnIntervals columns;
+        private final ColumnResolver resolver;
+        @Nullable private final Long2IntOpenHashMap resolvedCells;
+        private final int originX;
+        private final int originZ;
+        private final int sizeX;
+        private final int minY;
+        private final int maxY;
+
+        private CellLabeller(PortalSearchContext context, ColumnIntervals columns, ColumnResolver resolver,
+                             @Nullable Long2IntOpenHashMap resolvedCells, int originX, int originZ, int sizeX, int minY, int maxY)
+        {
+            this.context = context;
+            this.columns = columns;
+            this.resolver = resolver;
+            this.resolvedCells = resolvedCells;
+            this.originX = originX;
+            this.originZ = originZ;
+            this.sizeX = sizeX;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        // Cell corners are column offsets from the tile origin, candidates keep the tie-break order
+        private void label(int fromX, int fromZ, int toX, int toZ, int[] candidates)
+        {
+            if (fromX == toX && fromZ == toZ)
+            {
+                this.resolveColumn(fromX, fromZ, candidates);
+                return;
+            }
+
+            // The source to destination mapping is monotonic, so the cell maps onto this destination rectangle
+            double scale = this.context.getTarget().scale();
+            int radius = this.context.getTarget().searchRadius();
+            int destMinX = this.context.clampX((this.originX + fromX + 0.5D) * scale);
+            int destMaxX = this.context.clampX((this.originX + toX + 0.5D) * scale);
+            int destMinZ = this.context.clampZ((this.originZ + fromZ + 0.5D) * scale);
+            int destMaxZ = this.context.clampZ((this.originZ + toZ + 0.5D) * scale);
+            PortalCandidateTable table = this.context.getCandidateTable();
+            IntArrayList reaching = new IntArrayList(candidates.length);
+            int best = -1;
+            long bestMax = Long.MAX_VALUE;
+
+            for (int portalIndex : candidates)
+            {
+                if (table.getMaxX(portalIndex) < destMinX - radius || table.getMinX(portalIndex) > destMaxX + radius ||
+                    table.getMaxZ(portalIndex) < destMinZ - radius || table.getMinZ(portalIndex) > destMaxZ + radius)
+                {
+                    continue;
+                }
+
+                reaching.add(portalIndex);
+                boolean coversCell = table.getMinX(portalIndex) <= destMinX + radius && table.getMaxX(portalIndex) >= destMaxX - radius &&
+                                     table.getMinZ(portalIndex) <= destMinZ + radius && table.getMaxZ(portalIndex) >= destMaxZ - radius;
+
+                if (coversCell)
+                {
+                    long max = this.maxDistanceSq(table, portalIndex, destMinX, destMaxX, destMinZ, destMaxZ);
+
+                    // Strict, so the earliest portal wins ties like in the resolver
+                    if (max < bestMax)
+                    {
+                        bestMax = max;
+                        best = portalIndex;
+                    }
+                }
+            }
+
+            if (reaching.isEmpty())
+            {
+                this.fill(fromX, fromZ, toX, toZ, NO_PORTAL);
+                return;
+            }
+
+            if (best != -1 && this.beatsAll(best, bestMax, reaching, destMinX, destMaxX, destMinZ, destMaxZ))
+            {
+                this.fill(fromX, fromZ, toX, toZ, (short) best);
+                return;
+            }
+
+            int[] remaining = reaching.toIntArray();
+
+            if (toX - fromX >= toZ - fromZ)
+            {
+                int middleX = fromX + (toX - fromX) / 2;
+                this.label(fromX, fromZ, middleX, toZ, remaining);
+                this.label(middleX + 1, fromZ, toX, toZ, remaining);
+            }
+            else
+            {
+                int middleZ = fromZ + (toZ - fromZ) / 2;
+                this.label(fromX, fromZ, toX, middleZ, remaining);
+                this.label(fromX, middleZ + 1, toX, toZ, remaining);
+            }
+        }
+
+        // Portals earlier in the order win ties, so they have to be strictly farther everywhere
+        private boolean beatsAll(int best, long bestMax, IntArrayList reaching, int destMinX, int destMaxX, int destMinZ, int destMaxZ)
+        {
+            boolean before = true;
+
+            for (int i = 0; i < reaching.size(); ++i)
+            {
+                int portalIndex = reaching.getInt(i);
+
+                if (portalIndex == best)
+                {
+                    before = false;
+                    continue;
+                }
+
+                long min = this.minDistanceSq(this.context.getCandidateTable(), portalIndex, destMinX, destMaxX, destMinZ, destMaxZ);
+
+                if (before ? bestMax >= min : bestMax > min)
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private long minDistanceSq(PortalCandidateTable table, int portalIndex, int destMinX, int destMaxX, int destMinZ, int destMaxZ)
+        {
+            long dx = gap(table.getMinX(portalIndex), table.getMaxX(portalIndex), destMinX, destMaxX);
+            long dz = gap(table.getMinZ(portalIndex), table.getMaxZ(portalIndex), destMinZ, destMaxZ);
+            long dy = gap(table.getMinY(portalIndex), table.getMinY(portalIndex), this.minY, this.maxY);
+            return dx * dx + dz * dz + dy * dy;
+        }
+
+        // Distance to an interval is convex, so the maximum over a range is at one of its ends
+        private long maxDistanceSq(PortalCandidateTable table, int portalIndex, int destMinX, int destMaxX, int destMinZ, int destMaxZ)
+        {
+            int minX = table.getMinX(portalIndex);
+            int maxX = table.getMaxX(portalIndex);
+            int minZ = table.getMinZ(portalIndex);
+            int maxZ = table.getMaxZ(portalIndex);
+            long portalY = table.getMinY(portalIndex);
+            long dx = Math.max(gap(minX, maxX, destMinX, destMinX), gap(minX, maxX, destMaxX, destMaxX));
+            long dz = Math.max(gap(minZ, maxZ, destMinZ, destMinZ), gap(minZ, maxZ, destMaxZ, destMaxZ));
+            long dy = Math.max(Math.abs(portalY - this.minY), Math.abs(portalY - this.maxY));
+            return dx * dx + dz * dz + dy * dy;
+        }
+
+        // Distance between the intervals min1..max1 and min2..max2, 0 if they overlap
+        private static long gap(int min1, int max1, int min2, int max2)
+        {
+            return Math.max(0L, Math.max((long) min2 - max1, (long) min1 - max2));
+        }
+
+        private void fill(int fromX, int fromZ, int toX, int toZ, short owner)
+        {
+            int first = fromZ * this.sizeX + fromX;
+            this.columns.beginColumn(first);
+            this.columns.add(this.minY, this.maxY, owner);
+
+            for (int z = fromZ; z <= toZ; ++z)
+            {
+                for (int x = fromX; x <= toX; ++x)
+                {
+                    int column = z * this.sizeX + x;
+
+                    if (column != first)
+                    {
+                        this.columns.share(column, first);
+                    }
+                }
+            }
+        }
+
+        private void resolveColumn(int x, int z, int[] candidates)
+        {
+            double scale = this.context.getTarget().scale();
+            int column = z * this.sizeX + x;
+            int destX = this.context.clampX((this.originX + x + 0.5D) * scale);
+            int destZ = this.context.clampZ((this.originZ + z + 0.5D) * scale);
+
+            if (this.resolvedCells != null)
+            {
+                // Whatever portals were pruned for the other column can't reach this destination cell either
+                long cellKey = ((long) destX << 32) | (destZ & 0xFFFFFFFFL);
+                int resolvedColumn = this.resolvedCells.putIfAbsent(cellKey, column);
+
+                if (resolvedColumn != -1)
+                {
+                    this.columns.share(column, resolvedColumn);
+                    return;
+                }
+            }
+
+            this.resolver.resolve(column, destX, destZ, this.minY, this.maxY, this.context, candidates, this.columns);
+        }
+    }
+
+    // Labels one column at a time. Within a column the destination X/Z are fixed, so the squared distance
+    // to every candidate is the same parabola in Y up to a per-candidate constant and slope. The difference
+    // between two candidates is linear in Y, which gives the exact Y where another candidate takes over.
+    // The constants and slopes are packed doubles so the winner search can take the Vector API path, they
+    // are integers far below 2^53 so every value and difference stays exact.
+    private static class ColumnResolver
+    {
+        private final short[] candidates;
+        private final double[] constants;
+        private final double[] slopes;
+
+        private ColumnResolver(int maxCandidates)
+        {
+            this.candidates = new short[maxCandidates];
+            this.constants = new double[maxCandidates];
+            this.slopes = new double[maxCandidates];
+        }
+
+        private void resolve(int column, int destX, int destZ, int minY, int maxY,
+                             PortalSearchContext context, int[] portalIndices, ColumnIntervals out)
+        {
+            PortalCandidateTable table = context.getCandidateTable();
+            int radius = context.getTarget().searchRadius();
+            int count = 0;
+
+            // Candidates keep the portalIndices order, so the lowest index wins a tie like in the game
+            for (int portalIndex : portalIndices)
+            {
+                if (table.isOutsideSearchSquare(portalIndex, destX, destZ, radius))
+                {
+                    continue;
+                }
+
+                long dx = table.getClosestX(portalIndex, destX) - destX;
+                long dz = table.getClosestZ(portalIndex, destZ) - destZ;
+                long portalY = table.getMinY(portalIndex);
+
+                // distSq(y) = dx^2 + dz^2 + (portalY - y)^2 = constant - slope * y + y^2
+                this.candidates[count] = (short) portalIndex;
+                this.constants[count] = (double) (dx * dx + dz * dz + portalY * portalY);
+                this.slopes[count] = (double) (2L * portalY);
+                ++count;
+            }
+
+            out.beginColumn(column);
+
+            if (count == 0)
+            {
+                out.add(minY, maxY, NO_PORTAL);
+                return;
+            }
+
+            int y = minY;
+
+            while (y <= maxY)
+            {
+                int winner = PortalCandidateTable.findLowestLine(this.constants, this.slopes, count, y);
+                long nextY = (long) maxY + 1L;
+
+                for (int other = 0; other < count; ++other)
+                {
+                    if (other != winner)
+                    {
+                        nextY = Math.min(nextY, this.takeoverY(winner, other, y));
+                    }
+                }
+
+                out.add(y, (int) nextY - 1, this.candidates[winner]);
+                y = (int) nextY;
+            }
+        }
+
+        // First Y above currentY at which other beats winner, or Long.MAX_VALUE if it never does.
+        // other beats winner when it is strictly closer, or equally close and earlier in the order.
+        private long takeoverY(int winner, int other, int currentY)
+        {
+            // distSq(other) - distSq(winner) = diff - rate * y
+            long diff = (long) (this.constants[other] - this.constants[winner]);
+            long rate = (long) (this.slopes[other] - this.slopes[winner]);
+
+            if (rate <= 0L)
+            {
+                return Long.MAX_VALUE;
+            }
+
+            long y = other < winner ? Math.ceilDiv(diff, rate) : Math.floorDiv(diff, rate) + 1L;
+            return Math.max(y, (long) currentY + 1L);
+        }
+    }
+
+    private static class ColumnIntervals
+    {
+        private final int[] firsts;
+        private final int[] ends;
+        private final IntArrayList startYs = new IntArrayList();
+        private final IntArrayList endYs = new IntArrayList();
+        private final ShortArrayList owners = new ShortArrayList();
+        private int currentColumn = -1;
+
+        private ColumnIntervals(int columns)
+        {
+            this.firsts = new int[columns];
+            this.ends = new int[columns];
+        }
+
+        private void beginColumn(int column)
+        {
+            this.currentColumn = column;
+            this.firsts[column] = this.owners.size();
+            this.ends[column] = this.owners.size();
+        }
+
+        private void add(int startY, int endY, short owner)
+        {
+            int last = this.owners.size() - 1;
+
+            if (last >= this.firsts[this.currentColumn] && this.owners.getShort(last) == owner)
+            {
+                this.endYs.set(last, endY);
+                return;
+            }
+
+            this.startYs.add(startY);
+            this.endYs.add(endY);
+            this.owners.add(owner);
+            this.ends[this.currentColumn] = this.owners.size();
+        }
+
+        // Points column at the intervals already resolved for source
+        private void share(int column, int source)
+        {
+            this.firsts[column] = this.firsts[source];
+            this.ends[column] = this.ends[source];
+        }
+
+        private int first(int column)
+        {
+            return this.firsts[column];
+        }
+
+        private int end(int column)
+        {
+            return this.ends[column];
+        }
+
+        private int startY(int interval)
+        {
+            return this.startYs.getInt(interval);
+        }
+
+        private int endY(int interval)
+        {
+            return this.endYs.getInt(interval);
+        }
+
+        private short owner(int interval)
+        {
+            return this.owners.getShort(interval);
+        }
+    }
+
+    public record PortalWorkGroup(int[] portalIndices, PortalInfluence bounds)
+    {
+    }
+
+    // boundaries is null when the group failed, the render thread then leaves those portals empty.
+    // stored is set when the boundaries came from the cache file instead of being computed.
+    public record GroupResult(int generation, int[] portalIndices,
+                              @Nullable Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries, boolean stored)
+    {
+        private static GroupResult stored(int generation, int[] portalIndices, Int2ObjectOpenHashMap<PortalZoneBoundary> all)
+        {
+            Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = new Int2ObjectOpenHashMap<>(portalIndices.length);
+
+            for (int portalIndex : portalIndices)
+            {
+                PortalZoneBoundary boundary = all.get(portalIndex);
+
+                if (boundary != null)
+                {
+                    boundaries.put(portalIndex, boundary);
+                }
+            }
+
+            return new GroupResult(generation, portalIndices, boundaries, true);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ninja.trek.portal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.jetbrains.annotations.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+// Finished zone boundaries stored next to the portal data file, one file per dimension. A file is only
+// used when its fingerprint matches the current search context, see PortalSearchContext.getFingerprint().
+// Both directions run on the zone workers, never on the render thread.
+public final class PortalZoneDiskCache
+{
+    private static final Logger LOGGER = LogManager.getLogger("minihud-portal");
+    private static final int MAGIC = 0x4D485A43;
+    private static final int FORMAT_VERSION = 1;
+    // Guards the array allocations against corrupted files
+    private static final int MAX_SPANS = 1 << 26;
+
+    private PortalZoneDiskCache()
+    {
+    }
+
+    @Nullable
+    public static Int2ObjectOpenHashMap<PortalZoneBoundary> read(Path file, long fingerprint, int portalCount)
+    {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file)))))
+        {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readLong() != fingerprint)
+            {
+                return null;
+            }
+
+            int count = input.readInt();
+
+            if (count < 0 || count > portalCount)
+            {
+                return null;
+            }
+
+            Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = new Int2ObjectOpenHashMap<>(count);
+
+            for (int i = 0; i < count; ++i)
+            {
+                int portalIndex = input.readInt();
+
+                if (portalIndex < 0 || portalIndex >= portalCount)
+                {
+                    return null;
+                }
+
+                boundaries.put(portalIndex, PortalZoneBoundary.read(input, MAX_SPANS));
+            }
+
+            return boundaries;
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.warn("Failed to read the portal zone cache '{}'", file, e);
+            return null;
+        }
+    }
+
+    public static void write(Path file, long fingerprint, Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries)
+    {
+        Path tempFile = null;
+
+        try
+        {
+            // Written to a temporary file first, so a crash or a concurrent write never leaves a torn file behind
+            tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tempFile)))))
+            {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(fingerprint);
+                output.writeInt(boundaries.size());
+
+                for (Int2ObjectMap.Entry<PortalZoneBoundary> entry : boundaries.int2ObjectEntrySet())
+                {
+                    output.writeInt(entry.getIntKey());
+                    entry.getValue().write(output);
+                }
+            }
+
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.warn("Failed to write the portal zone cache '{}'", file, e);
+
+            if (tempFile != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(tempFile);
+                }
+                catch (IOException ignore)
+                {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package ninja.trek.portal;
+
+import java.util.Arrays;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.client.render.BufferBuilder;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import fi.dy.masa.malilib.util.LayerRange;
+import fi.dy.masa.malilib.util.data.Color4f;
+
+// Turns the boundary of one portal zone into a surface mesh. Only the faces that don't touch another voxel
+// of the same zone are kept, and the faces of each plane are merged into rectangles, so a flat zone wall
+// becomes a couple of quads instead of one cube per block. The boundary is read as Y spans per column:
+// top and bottom faces only exist at span ends, and side faces are the parts of a span the neighbor column
+// doesn't cover. Every plane, top, bottom or side, then goes through the same 2D greedy merge.
+// Each 16x16x16 section is meshed on its own, so a layer range change only rebuilds the sections it touches.
+public final class PortalZoneMesher
+{
+    private static final int DOWN = 0;
+    private static final int UP = 1;
+    private static final int NORTH = 2;
+    private static final int SOUTH = 3;
+    private static final int WEST = 4;
+    private static final int EAST = 5;
+    private static final int[][] OFFSETS = { { 0, -1, 0 }, { 0, 1, 0 }, { 0, 0, -1 }, { 0, 0, 1 }, { -1, 0, 0 }, { 1, 0, 0 } };
+    // direction, plane, minU, minV, maxU, maxV, side faces use Y as V
+    private static final int FACE_INTS = 6;
+
+    private PortalZoneMesher()
+    {
+    }
+
+    // Meshes the part of the zone inside one 16x16x16 section, relative to the section origin.
+    // Faces belong to the section of the voxel they sit on, so neighboring sections never overlap.
+    public static void renderQuads(PortalZoneBoundary boundary, LayerRange range, int sectionX, int sectionY, int sectionZ,
+                                   Color4f color, BufferBuilder buffer)
+    {
+        IntArrayList faces = mesh(boundary, range, sectionX, sectionY, sectionZ);
+        BlockPos origin = new BlockPos(sectionX << 4, sectionY << 4, sectionZ << 4);
+
+        for (int i = 0; i < faces.size(); i += FACE_INTS)
+        {
+            addFaceQuad(faces, i, color, origin, buffer);
+        }
+    }
+
+    public static void renderOutlines(PortalZoneBoundary boundary, LayerRange range, int sectionX, int sectionY, int sectionZ,
+                                      Color4f color, BufferBuilder buffer)
+    {
+        IntArrayList faces = mesh(boundary, range, sectionX, sectionY, sectionZ);
+        BlockPos origin = new BlockPos(sectionX << 4, sectionY << 4, sectionZ << 4);
+
+        for (int i = 0; i < faces.size(); i += FACE_INTS)
+        {
+            addFaceOutline(faces, i, color, origin, buffer);
+        }
+    }
+
+    private static IntArrayList mesh(PortalZoneBoundary boundary, LayerRange range, int sectionX, int sectionY, int sectionZ)
+    {
+        // Top and bottom faces as X/Z cells per Y plane, side faces as U/Y cells per X or Z plane
+        @SuppressWarnings("unchecked")
+        Int2ObjectOpenHashMap<LongArrayList>[] planes = new Int2ObjectOpenHashMap[OFFSETS.length];
+
+        for (int direction = 0; direction < OFFSETS.length; ++direction)
+        {
+            planes[direction] = new Int2ObjectOpenHashMap<>();
+        }
+
+        // The layer range is applied per span instead of per voxel. Voxels it hides don't cover
+        // their neighbors either, so the clipped span ends get faces like any other span end.
+        boolean clipY = range.getAxis() == Direction.Axis.Y;
+        int visibleMinY = clipY ? range.getLayerMin() : Integer.MIN_VALUE;
+        int visibleMaxY = clipY ? range.getLayerMax() : Integer.MAX_VALUE;
+        int minX = sectionX << 4;
+        int minY = sectionY << 4;
+        int minZ = sectionZ << 4;
+        int maxX = minX + 15;
+        int maxY = minY + 15;
+        int maxZ = minZ + 15;
+        int columnCount = boundary.getColumnCount();
+
+        for (int z = minZ; z <= maxZ; ++z)
+        {
+            for (int column = boundary.findColumnAtOrAfter(minX, z);
+                 column < columnCount && boundary.getColumnZ(column) == z && boundary.getColumnX(column) <= maxX;
+                 ++column)
+            {
+                int x = boundary.getColumnX(column);
+
+                if (isColumnVisible(range, clipY, x, z) == false)
+                {
+                    continue;
+                }
+
+                for (int span = boundary.getSpanStart(column); span < boundary.getSpanEnd(column); ++span)
+                {
+                    int spanMinY = Math.max(boundary.getSpanMinY(span), visibleMinY);
+                    int spanMaxY = Math.min(boundary.getSpanMaxY(span), visibleMaxY);
+
+                    if (spanMinY > maxY || spanMaxY < minY || spanMinY > spanMaxY)
+                    {
+                        continue;
+                    }
+
+                    // Spans are maximal, so the voxels right below and above them are never part of the zone
+                    if (spanMinY >= minY)
+                    {
+                        addCell(planes[DOWN], spanMinY, x, z);
+                    }
+
+                    if (spanMaxY <= maxY)
+                    {
+                        addCell(planes[UP], spanMaxY + 1, x, z);
+                    }
+
+                    int stripMinY = Math.max(spanMinY, minY);
+                    int stripMaxY = Math.min(spanMaxY, maxY);
+
+                    for (int direction = NORTH; direction <= EAST; ++direction)
+                    {
+                        int neighborX = x + OFFSETS[direction][0];
+                        int neighborZ = z + OFFSETS[direction][2];
+                        int neighbor = boundary.findColumn(neighborX, neighborZ);
+
+                        if (neighbor != -1 && isColumnVisible(range, clipY, neighborX, neighborZ) == false)
+                        {
+                            neighbor = -1;
+                        }
+
+                        addExposedStrips(planes[direction], direction, boundary, neighbor, x, z, stripMinY, stripMaxY, visibleMinY, visibleMaxY);
+                    }
+                }
+            }
+        }
+
+        IntArrayList faces = new IntArrayList();
+        LongOpenHashSet remaining = new LongOpenHashSet();
+
+        for (int direction = 0; direction < OFFSETS.length; ++direction)
+        {
+            for (Int2ObjectMap.Entry<LongArrayList> entry : planes[direction].int2ObjectEntrySet())
+            {
+                mergePlane(direction, entry.getIntKey(), entry.getValue(), remaining, faces);
+            }
+        }
+
+        return faces;
+    }
+
+    private static boolean isColumnVisible(LayerRange range, boolean clipY, int x, int z)
+    {
+        return clipY || range.isPositionWithinRange(x, 0, z);
+    }
+
+    // Adds the parts of minY..maxY that the neighbor column doesn't cover as side face strips
+    private static void addExposedStrips(Int2ObjectOpenHashMap<LongArrayList> planes, int direction, PortalZoneBoundary boundary,
+                                         int neighbor, int x, int z, int minY, int maxY, int visibleMinY, int visibleMaxY)
+    {
+        int plane = switch (direction)
+        {
+            case NORTH -> z;
+            case SOUTH -> z + 1;
+            case WEST -> x;
+            default -> x + 1;
+        };
+        int u = direction == NORTH || direction == SOUTH ? x : z;
+        int cursor = minY;
+
+        if (neighbor != -1)
+        {
+            for (int span = boundary.getSpanStart(neighbor); span < boundary.getSpanEnd(neighbor) && cursor <= maxY; ++span)
+            {
+                int coveredMinY = Math.max(boundary.getSpanMinY(span), visibleMinY);
+                int coveredMaxY = Math.min(boundary.getSpanMaxY(span), visibleMaxY);
+
+                if (coveredMaxY < cursor)
+                {
+                    continue;
+                }
+
+                if (coveredMinY > maxY)
+                {
+                    break;
+                }
+
+                if (coveredMinY > cursor)
+                {
+                    addStrip(planes, plane, u, cursor, coveredMinY - 1);
+                }
+
+                cursor = Math.max(cursor, coveredMaxY + 1);
+            }
+        }
+
+        if (cursor <= maxY)
+        {
+            addStrip(planes, plane, u, cursor, maxY);
+        }
+    }
+
+    private static void addCell(Int2ObjectOpenHashMap<LongArrayList> planes, int plane, int u, int v)
+    {
+        getPlane(planes, plane).add(packCell(u, v));
+    }
+
+    // Strips are clipped to the section, so this is at most 16 cells
+    private static void addStrip(Int2ObjectOpenHashMap<LongArrayList> planes, int plane, int u, int minY, int maxY)
+    {
+        LongArrayList cells = getPlane(planes, plane);
+
+        for (int y = minY; y <= maxY; ++y)
+        {
+            cells.add(packCell(u, y));
+        }
+    }
+
+    private static LongArrayList getPlane(Int2ObjectOpenHashMap<LongArrayList> planes, int plane)
+    {
+        LongArrayList cells = planes.get(plane);
+
+        if (cells == null)
+        {
+            cells = new LongArrayList();
+            planes.put(plane, cells);
+        }
+
+        return cells;
+    }
+
+    // Standard greedy merge: starting from the lowest unused cell, grow along U as far as possible,
+    // then grow along V while the whole row below is still unused
+    private static void mergePlane(int direction, int plane, LongArrayList cells, LongOpenHashSet remaining, IntArrayList out)
+    {
+        long[] sorted = cells.toLongArray();
+        Arrays.sort(sorted);
+        remaining.clear();
+        remaining.addAll(cells);
+
+        for (long cell : sorted)
+        {
+            if (remaining.contains(cell) == false)
+            {
+                continue;
+            }
+
+            int minU = unpackU(cell);
+            int minV = unpackV(cell);
+            int maxU = minU;
+            int maxV = minV;
+
+            while (remaining.contains(packCell(maxU + 1, minV)))
+            {
+                ++maxU;
+            }
+
+            grow:
+            while (true)
+            {
+                for (int u = minU; u <= maxU; ++u)
+                {
+                    if (remaining.contains(packCell(u, maxV + 1)) == false)
+                    {
+                        break grow;
+                    }
+                }
+
+                ++maxV;
+            }
+
+            for (int v = minV; v <= maxV; ++v)
+            {
+                for (int u = minU; u <= maxU; ++u)
+                {
+                    remaining.remove(packCell(u, v));
+                }
+            }
+
+            out.add(direction);
+            out.add(plane);
+            out.add(minU);
+            out.add(minV);
+            out.add(maxU);
+            out.add(maxV);
+        }
+    }
+
+    // V in the high half and U offset to unsigned in the low half, so the natural long order is row by row
+    private static long packCell(int u, int v)
+    {
+        return ((long) v << 32) | ((u ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    private static int unpackU(long cell)
+    {
+        return (int) cell ^ Integer.MIN_VALUE;
+    }
+
+    private static int unpackV(long cell)
+    {
+        return (int) (cell >> 32);
+    }
+
+    private static void addFaceQuad(IntArrayList faces, int index, Color4f color, BlockPos origin, BufferBuilder buffer)
+    {
+        float[] corners = getFaceCorners(faces, index, origin);
+
+        for (int corner = 0; corner < 4; ++corner)
+        {
+            buffer.vertex(corners[corner * 3], corners[corner * 3 + 1], corners[corner * 3 + 2])
+                  .color(color.r, color.g, color.b, color.a);
+        }
+    }
+
+    private static void addFaceOutline(IntArrayList faces, int index, Color4f color, BlockPos origin, BufferBuilder buffer)
+    {
+        float[] corners = getFaceCorners(faces, index, origin);
+
+        for (int corner = 0; corner < 4; ++corner)
+        {
+            int next = (corner + 1) & 3;
+            buffer.vertex(corners[corner * 3], corners[corner * 3 + 1], corners[corner * 3 + 2])
+                  .color(color.r, color.g, color.b, color.a);
+            buffer.vertex(corners[next * 3], corners[next * 3 + 1], corners[next * 3 + 2])
+                  .color(color.r, color.g, color.b, color.a);
+        }
+    }
+
+    // Corners of a merged face relative to the section origin, in the same winding as the malilib box sides
+    private static float[] getFaceCorners(IntArrayList faces, int index, BlockPos origin)
+    {
+        int direction = faces.getInt(index);
+        int plane = faces.getInt(index + 1);
+        int minU = faces.getInt(index + 2);
+        int minV = faces.getInt(index + 3);
+        int maxU = faces.getInt(index + 4) + 1;
+        int maxV = faces.getInt(index + 5) + 1;
+
+        return switch (direction)
+        {
+            case DOWN -> corners(origin, maxU, plane, maxV, minU, plane, maxV, minU, plane, minV, maxU, plane, minV);
+            case UP -> corners(origin, minU, plane, maxV, maxU, plane, maxV, maxU, plane, minV, minU, plane, minV);
+            case NORTH -> corners(origin, maxU, minV, plane, minU, minV, plane, minU, maxV, plane, maxU, maxV, plane);
+            case SOUTH -> corners(origin, minU, minV, plane, maxU, minV, plane, maxU, maxV, plane, minU, maxV, plane);
+            case WEST -> corners(origin, plane, minV, minU, plane, minV, maxU, plane, maxV, maxU, plane, maxV, minU);
+            default -> corners(origin, plane, minV, maxU, plane, minV, minU, plane, maxV, minU, plane, maxV, maxU);
+        };
+    }
+
+    private static float[] corners(BlockPos origin, int... coords)
+    {
+        float[] corners = new float[coords.length];
+
+        for (int i = 0; i < coords.length; i += 3)
+        {
+            corners[i] = coords[i] - origin.getX();
+            corners[i + 1] = coords[i + 1] - origin.getY();
+            corners[i + 2] = coords[i + 2] - origin.getZ();
+        }
+
+        return corners;
+    }
+}
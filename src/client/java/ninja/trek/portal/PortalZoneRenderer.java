@@ -1,51 +1,58 @@
 package ninja.trek.portal;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 import org.jetbrains.annotations.Nullable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fStack;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import com.mojang.blaze3d.pipeline.RenderPipeline;
+import com.mojang.blaze3d.systems.RenderSystem;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.BuiltBuffer;
 import net.minecraft.entity.Entity;
-import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.profiler.Profiler;
 import net.minecraft.world.World;
-import net.minecraft.world.border.WorldBorder;
 import fi.dy.masa.malilib.interfaces.IRangeChangeListener;
 import fi.dy.masa.malilib.render.MaLiLibPipelines;
 import fi.dy.masa.malilib.util.LayerRange;
 import fi.dy.masa.malilib.util.data.Color4f;
 import fi.dy.masa.minihud.renderer.OverlayRendererBase;
-import fi.dy.masa.minihud.renderer.RenderUtils;
+import ninja.trek.portal.PortalSearchContext.PortalCandidate;
+import ninja.trek.portal.PortalSearchContext.PortalInfluence;
+import ninja.trek.portal.PortalSearchContext.TargetDimension;
 
 public class PortalZoneRenderer extends OverlayRendererBase implements IRangeChangeListener
 {
     public static final PortalZoneRenderer INSTANCE = new PortalZoneRenderer();
     private static final Logger LOGGER = LogManager.getLogger("minihud-portal");
 
-    private static final int MAX_GROUPS_PER_TICK = 1;
-    private static final short NO_PORTAL = -1;
-    private static final float LETTER_STROKE_PIXELS = 2.5f;
-    private static final float LETTER_STROKE_RELATIVE_FALLBACK = 0.12f;
+    private static final float LETTER_STROKE_RELATIVE = 0.12f;
+    private static final TargetDimension NETHER_TARGET = new TargetDimension(PortalDimension.OVERWORLD, 8.0D, 128);
+    private static final TargetDimension OVERWORLD_TARGET = new TargetDimension(PortalDimension.NETHER, 1.0D / 8.0D, 16);
 
-    private final List<PortalWorkGroup> pendingGroups = new ArrayList<>();
-    private final Int2ObjectOpenHashMap<LongOpenHashSet> positionsByPortal = new Int2ObjectOpenHashMap<>();
+    private final PortalZoneComputer computer = new PortalZoneComputer();
+    private final PortalZoneCache zoneCache = new PortalZoneCache();
+    private final Int2ObjectOpenHashMap<PortalZoneBoundary> boundariesByPortal = new Int2ObjectOpenHashMap<>();
     private final Int2ObjectOpenHashMap<PortalRenderCache> portalRenderCaches = new Int2ObjectOpenHashMap<>();
     private final Map<UUID, LetterRenderCache> currentDimensionLetterCaches = new HashMap<>();
     private final LayerRange layerRange = new LayerRange(this);
 
-    private int nextGroupIndex;
     private boolean needsFullRebuild = true;
     private boolean renderDirty = true;
     private boolean portalDataDirty = true;
@@ -57,9 +64,13 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
     private boolean loggedNoDataSinceToggle;
     private boolean loggedMissingTarget;
     private boolean pendingToggleDiagnostics;
-    private float lastCameraYaw = Float.NaN;
-    private float lastCameraPitch = Float.NaN;
-    private String lastDimensionId = "";
+    private boolean storeZonesWhenDone;
+    private boolean zonesIncomplete;
+    // Set once any group of the current zones failed, unlike zonesIncomplete it stays set until a full rebuild
+    // retries every group, so partial zones are never cached or taken as the base of an incremental update
+    private boolean zonesFailed;
+    private Vec3d lastUpdatePos = Vec3d.ZERO;
+    @Nullable private PortalDimension lastDimension;
     private PortalSearchContext searchContext;
 
     private PortalZoneRenderer()
@@ -92,7 +103,7 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
                     showZoneBorders,
                     renderLetters,
                     hasWorld,
-                    target != null ? target.dimensionId : "<none>");
+                    target != null ? target.dimension() : "<none>");
         }
 
         return shouldRender;
@@ -106,7 +117,7 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
             return true;
         }
 
-        if (this.nextGroupIndex < this.pendingGroups.size())
+        if (this.computer.hasPendingGroups())
         {
             return true;
         }
@@ -121,11 +132,6 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
             return false;
         }
 
-        if (this.shouldUpdateLettersForCamera(mc))
-        {
-            return true;
-        }
-
         Vec3d entityPos = new Vec3d(entity.getX(), entity.getY(), entity.getZ());
         return this.hasVisibleDirtyPortals(entityPos, mc);
     }
@@ -133,6 +139,8 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
     @Override
     public void update(Vec3d cameraPos, Entity entity, MinecraftClient mc, Profiler profiler)
     {
+        // Zone sections and letters are built in local frames and placed against this position when drawn
+        this.lastUpdatePos = cameraPos;
         PortalZoneSettings settings = PortalDataStore.getInstance().getZoneSettings();
         boolean showZoneBorders = settings.isShowZoneBorders();
         boolean renderLetters = settings.shouldRenderLetters();
@@ -185,14 +193,12 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
         {
             if (this.pendingToggleDiagnostics)
             {
-                String dimensionId = world.getRegistryKey().getValue().toString();
-                LOGGER.info("Portal zone borders diagnostics: render blocked (unsupported dimension={})", dimensionId);
+                LOGGER.info("Portal zone borders diagnostics: render blocked (unsupported dimension={})", PortalDimension.of(world));
                 this.pendingToggleDiagnostics = false;
             }
             if (showZoneBorders && this.loggedMissingTarget == false)
             {
-                String dimensionId = world.getRegistryKey().getValue().toString();
-                LOGGER.info("Portal zone borders render blocked (unsupported dimension={})", dimensionId);
+                LOGGER.info("Portal zone borders render blocked (unsupported dimension={})", PortalDimension.of(world));
                 this.loggedMissingTarget = true;
             }
             this.resetState();
@@ -224,37 +230,35 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
             this.needsFullRebuild = true;
         }
 
-        String dimensionId = world.getRegistryKey().getValue().toString();
-
         if (this.needsFullRebuild || this.portalDataDirty ||
-            this.lastDimensionId.equals(dimensionId) == false)
+            this.lastDimension != PortalDimension.of(world))
         {
             this.rebuild(world, target);
         }
 
-        this.processGroups(target);
+        this.processGroups();
 
         if (this.pendingToggleDiagnostics)
         {
-            int portalCount = this.searchContext != null ? this.searchContext.portals.size() : 0;
+            int portalCount = this.searchContext != null ? this.searchContext.getPortals().size() : 0;
             LOGGER.info(
-                    "Portal zone borders diagnostics: rebuild={} renderDirty={} portalDataDirty={} queued={} portals={} positionsByPortal={}",
+                    "Portal zone borders diagnostics: rebuild={} renderDirty={} portalDataDirty={} queued={} portals={} boundariesByPortal={}",
                     this.needsFullRebuild,
                     this.renderDirty,
                     this.portalDataDirty,
-                    Math.max(0, this.pendingGroups.size() - this.nextGroupIndex),
+                    this.computer.getPendingGroups(),
                     portalCount,
-                    this.positionsByPortal.size());
+                    this.boundariesByPortal.size());
             this.pendingToggleDiagnostics = false;
         }
 
         if (showZoneBorders && this.hasData() == false &&
-            this.nextGroupIndex >= this.pendingGroups.size() && this.loggedNoDataSinceToggle == false)
+            this.computer.hasPendingGroups() == false && this.loggedNoDataSinceToggle == false)
         {
-            int portalCount = this.searchContext != null ? this.searchContext.portals.size() : 0;
-            LOGGER.info("Portal zone borders have no render data (portals={}, positionsByPortal={})",
+            int portalCount = this.searchContext != null ? this.searchContext.getPortals().size() : 0;
+            LOGGER.info("Portal zone borders have no render data (portals={}, boundariesByPortal={})",
                     portalCount,
-                    this.positionsByPortal.size());
+                    this.boundariesByPortal.size());
             this.loggedNoDataSinceToggle = true;
         }
 
@@ -271,13 +275,12 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
         this.lastRenderLines = settings.shouldRenderLines();
         this.lastRenderThrough = settings.shouldRenderThrough();
         this.lastSimpleMode = settings.isSimpleMode();
-        this.updateCameraAngles(mc);
     }
 
     @Override
     public boolean hasData()
     {
-        return this.hasData && this.positionsByPortal.isEmpty() == false;
+        return this.hasData && this.boundariesByPortal.isEmpty() == false;
     }
 
     @Override
@@ -289,17 +292,56 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
 
     public void resetState()
     {
-        this.pendingGroups.clear();
-        this.nextGroupIndex = 0;
-        this.positionsByPortal.clear();
+        this.cacheCurrentZones();
+        this.computer.cancel();
+        this.boundariesByPortal.clear();
         this.clearPortalRenderCaches();
         this.clearCurrentDimensionLetterCaches();
         this.searchContext = null;
         this.hasData = false;
+        this.storeZonesWhenDone = false;
+        this.zonesIncomplete = false;
+        this.zonesFailed = false;
         this.renderDirty = true;
         this.needsFullRebuild = true;
     }
 
+    // The cached zones belong to one world, so they are dropped when joining or leaving one
+    public void clearZoneCache()
+    {
+        this.zoneCache.clear();
+    }
+
+    // Keeps the finished zones of the current dimension around for when the player comes back
+    private void cacheCurrentZones()
+    {
+        if (this.searchContext == null || this.lastDimension == null ||
+            this.boundariesByPortal.isEmpty() || this.computer.hasPendingGroups() || this.zonesFailed)
+        {
+            return;
+        }
+
+        this.zoneCache.put(this.lastDimension, PortalZoneCache.Entry.of(this.searchContext, this.lastSimpleMode, this.boundariesByPortal));
+    }
+
+    // Puts back the cached zones of the dimension if they were computed for the same world, the caller
+    // then treats the cached context like the previous one, so only changed portals are recomputed
+    private boolean restoreCachedZones(PortalDimension dimension, PortalSearchContext context, boolean simpleMode)
+    {
+        PortalZoneCache.Entry entry = this.zoneCache.take(dimension);
+
+        if (entry == null || entry.simpleMode() != simpleMode || context.hasSameWorld(entry.context()) == false)
+        {
+            return false;
+        }
+
+        this.clearPositions();
+        this.searchContext = entry.context();
+        this.boundariesByPortal.putAll(entry.boundaries());
+        this.initializePortalRenderCaches();
+        return true;
+    }
+
     private void markDirty()
     {
         this.portalDataDirty = true;
@@ -316,483 +358,346 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
 
     private void rebuild(World world, TargetDimension target)
     {
-        this.clearPositions();
-        this.searchContext = this.buildSearchContext(world, target);
-        this.lastDimensionId = world.getRegistryKey().getValue().toString();
-        this.syncCurrentDimensionLetterCaches(world);
+        PortalSearchContext previous = this.searchContext;
+        PortalSearchContext context = PortalSearchContext.create(world, target, PortalDataStore.getInstance().getPortals());
+        boolean simpleMode = PortalDataStore.getInstance().getZoneSettings().isSimpleMode();
 
-        if (this.searchContext == null || this.searchContext.portals.isEmpty())
+        if (previous != null && this.lastDimension != PortalDimension.of(world))
         {
-            return;
+            this.cacheCurrentZones();
+            this.computer.cancel();
+            this.zonesFailed = false;
+            previous = null;
         }
 
-        this.initializePortalRenderCaches();
-        this.pendingGroups.clear();
-        this.pendingGroups.addAll(this.buildWorkGroups(this.searchContext.influences));
-        this.nextGroupIndex = 0;
-    }
+        this.lastDimension = PortalDimension.of(world);
+        this.syncCurrentDimensionLetterCaches(world);
+        boolean restored = previous == null && this.restoreCachedZones(this.lastDimension, context, simpleMode);
 
-    private void processGroups(TargetDimension target)
-    {
-        if (this.searchContext == null || this.searchContext.portals.isEmpty())
+        if (restored)
         {
-            this.hasData = false;
-            return;
+            previous = this.searchContext;
         }
 
-        for (int i = 0; i < MAX_GROUPS_PER_TICK && this.nextGroupIndex < this.pendingGroups.size(); ++i)
+        // Jobs still in flight use the portal indices of the previous context, so those need a full restart
+        if ((restored || this.needsFullRebuild == false) && previous != null && this.computer.hasPendingGroups() == false &&
+            this.zonesFailed == false && context.hasSameWorld(previous))
         {
-            PortalWorkGroup group = this.pendingGroups.get(this.nextGroupIndex);
-            this.processGroup(group, target, this.searchContext);
-            this.nextGroupIndex++;
+            this.applyPortalChanges(previous, context, simpleMode);
+            return;
         }
 
-        this.hasData = this.positionsByPortal.isEmpty() == false;
-        this.renderDirty = true;
-    }
+        this.clearPositions();
+        this.computer.cancel();
+        this.zonesFailed = false;
+        this.searchContext = context;
 
-    private void clearPositions()
-    {
-        this.positionsByPortal.clear();
-        this.clearPortalRenderCaches();
-    }
+        if (this.searchContext.getPortals().isEmpty())
+        {
+            return;
+        }
 
-    private void syncCurrentDimensionLetterCaches(World world)
-    {
-        this.clearCurrentDimensionLetterCaches();
-        String dimensionId = world.getRegistryKey().getValue().toString();
+        this.initializePortalRenderCaches();
+        List<PortalZoneComputer.PortalWorkGroup> groups = PortalZoneComputer.buildWorkGroups(this.searchContext.getInfluences());
 
-        for (PortalEntry entry : PortalDataStore.getInstance().getPortals())
+        // The first build in a dimension tries the zones stored by an earlier session
+        if (previous == null)
         {
-            if (entry.getDimensionId().equals(dimensionId))
-            {
-                this.currentDimensionLetterCaches.put(entry.getId(), new LetterRenderCache(entry));
-            }
+            this.computer.submitStored(this.searchContext, groups, simpleMode, PortalDataStore.getInstance().getZoneCacheFile(this.lastDimension));
         }
-    }
-
-    private void clearCurrentDimensionLetterCaches()
-    {
-        for (LetterRenderCache cache : this.currentDimensionLetterCaches.values())
+        else
         {
-            cache.close();
+            this.computer.submit(this.searchContext, groups, simpleMode);
         }
-
-        this.currentDimensionLetterCaches.clear();
     }
 
-    private void addPortalPosition(Int2ObjectOpenHashMap<LongOpenHashSet> positions, int portalIndex, long pos)
+    // Recomputes only the work groups that contain an added or resized portal, or that overlap the old
+    // influence of a removed or resized one. A zone only depends on the portals overlapping its own group,
+    // so the boundaries and section meshes of every other portal are kept and just moved to their new index.
+    private void applyPortalChanges(PortalSearchContext previous, PortalSearchContext context, boolean simpleMode)
     {
-        LongOpenHashSet set = positions.get(portalIndex);
+        List<PortalCandidate> oldPortals = previous.getPortals();
+        List<PortalCandidate> newPortals = context.getPortals();
+        Object2IntOpenHashMap<PortalCandidate> oldIndices = new Object2IntOpenHashMap<>(oldPortals.size());
+        oldIndices.defaultReturnValue(-1);
 
-        if (set == null)
+        for (int i = 0; i < oldPortals.size(); ++i)
         {
-            set = new LongOpenHashSet();
-            positions.put(portalIndex, set);
+            oldIndices.putIfAbsent(oldPortals.get(i), i);
         }
 
-        set.add(pos);
-    }
-
-    private void initializePortalRenderCaches()
-    {
-        this.clearPortalRenderCaches();
+        // Old index of each unchanged portal, -1 for added and resized ones
+        int[] oldIndexOf = new int[newPortals.size()];
 
-        if (this.searchContext == null)
+        for (int i = 0; i < newPortals.size(); ++i)
         {
-            return;
+            oldIndexOf[i] = oldIndices.removeInt(newPortals.get(i));
         }
 
-        for (int i = 0; i < this.searchContext.portals.size(); ++i)
-        {
-            PortalCandidate portal = this.searchContext.portals.get(i);
-            PortalInfluence influence = this.searchContext.influences.size() > i ? this.searchContext.influences.get(i) : null;
-            this.portalRenderCaches.put(i, new PortalRenderCache(i, portal.color(), influence));
-        }
-    }
+        // Whatever is left over was removed or resized
+        List<PortalInfluence> removedInfluences = new ArrayList<>(oldIndices.size());
 
-    private void clearPortalRenderCaches()
-    {
-        for (PortalRenderCache cache : this.portalRenderCaches.values())
+        for (int oldIndex : oldIndices.values())
         {
-            cache.close();
+            removedInfluences.add(previous.getInfluences().get(oldIndex));
         }
 
-        this.portalRenderCaches.clear();
-    }
-
-    private void markPortalDirty(int portalIndex, boolean markOutline)
-    {
-        PortalRenderCache cache = this.portalRenderCaches.get(portalIndex);
+        List<PortalZoneComputer.PortalWorkGroup> groups = PortalZoneComputer.buildWorkGroups(context.getInfluences());
+        List<PortalZoneComputer.PortalWorkGroup> affectedGroups = new ArrayList<>();
 
-        if (cache != null)
+        for (PortalZoneComputer.PortalWorkGroup group : groups)
         {
-            cache.quadsDirty = true;
-            cache.lettersDirty = true;
-
-            if (markOutline)
+            if (isGroupAffected(group, oldIndexOf, removedInfluences))
             {
-                cache.outlinesDirty = true;
+                affectedGroups.add(group);
             }
         }
-    }
 
-    private void markAllPortalsDirty(boolean quads, boolean outlines)
-    {
-        for (PortalRenderCache cache : this.portalRenderCaches.values())
+        Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = new Int2ObjectOpenHashMap<>();
+        Int2ObjectOpenHashMap<PortalRenderCache> caches = new Int2ObjectOpenHashMap<>();
+
+        for (int i = 0; i < newPortals.size(); ++i)
         {
-            if (quads)
+            PortalRenderCache cache = oldIndexOf[i] != -1 ? this.portalRenderCaches.remove(oldIndexOf[i]) : null;
+            PortalZoneBoundary boundary = oldIndexOf[i] != -1 ? this.boundariesByPortal.get(oldIndexOf[i]) : null;
+
+            if (cache != null)
             {
-                cache.quadsDirty = true;
+                cache.portalIndex = i;
+            }
+            else
+            {
+                cache = new PortalRenderCache(i, newPortals.get(i).color(), context.getInfluences().get(i));
             }
 
-            cache.lettersDirty = true;
-
-            if (outlines)
+            if (boundary != null)
             {
-                cache.outlinesDirty = true;
+                boundaries.put(i, boundary);
             }
+
+            caches.put(i, cache);
         }
-    }
 
-    private void processGroup(PortalWorkGroup group, TargetDimension target, PortalSearchContext context)
-    {
-        boolean simpleMode = PortalDataStore.getInstance().getZoneSettings().isSimpleMode();
+        this.clearPortalRenderCaches();
+        this.portalRenderCaches.putAll(caches);
+        this.boundariesByPortal.clear();
+        this.boundariesByPortal.putAll(boundaries);
+        this.searchContext = context;
+        this.hasData = this.boundariesByPortal.isEmpty() == false;
 
-        if (group.portalIndices.length == 1 || simpleMode)
+        if (affectedGroups.isEmpty() == false)
         {
-            // In simple mode, process each portal as isolated (show full influence without overlap calculations)
-            for (int portalIndex : group.portalIndices)
-            {
-                PortalCandidate portal = context.portals.get(portalIndex);
-                PortalInfluence influence = context.influences.get(portalIndex);
-                this.processIsolatedPortal(portalIndex, portal, influence, target, context);
-                this.markPortalDirty(portalIndex, true);
-            }
-            return;
+            this.computer.submit(context, affectedGroups, simpleMode);
         }
 
-        this.processOverlapGroup(group, target, context);
-        for (int portalIndex : group.portalIndices)
+        // Removing a portal can leave every group untouched, the stored zones still need the new fingerprint
+        if (context.getFingerprint(simpleMode) != previous.getFingerprint(simpleMode))
         {
-            this.markPortalDirty(portalIndex, true);
+            this.storeZonesWhenDone = true;
         }
+
+        LOGGER.debug("Portal change recomputes {} of {} zone groups", affectedGroups.size(), groups.size());
     }
 
-    private void processIsolatedPortal(int portalIndex, PortalCandidate portal, PortalInfluence influence,
-                                       TargetDimension target, PortalSearchContext context)
+    private static boolean isGroupAffected(PortalZoneComputer.PortalWorkGroup group, int[] oldIndexOf, List<PortalInfluence> removedInfluences)
     {
-        int minY = influence.minY();
-        int maxY = influence.maxY();
-        int minX = influence.minX();
-        int maxX = influence.maxX();
-        int minZ = influence.minZ();
-        int maxZ = influence.maxZ();
-
-        // 1. Horizontal faces (Top/Bottom) - Full Coverage
-        for (int x = minX; x <= maxX; ++x)
+        for (int portalIndex : group.portalIndices())
         {
-            for (int z = minZ; z <= maxZ; ++z)
+            if (oldIndexOf[portalIndex] == -1)
             {
-                this.addPortalPosition(this.positionsByPortal, portalIndex, BlockPos.asLong(x, minY, z));
-                if (maxY > minY)
-                {
-                    this.addPortalPosition(this.positionsByPortal, portalIndex, BlockPos.asLong(x, maxY, z));
-                }
+                return true;
             }
         }
 
-        // 2. Vertical faces (Sides) - Between Top/Bottom
-        if (maxY > minY + 1)
+        for (PortalInfluence influence : removedInfluences)
         {
-            // North/South (along X) - Full width
-            for (int y = minY + 1; y < maxY; ++y)
-            {
-                for (int x = minX; x <= maxX; ++x)
-                {
-                    this.addPortalPosition(this.positionsByPortal, portalIndex, BlockPos.asLong(x, y, minZ));
-                    if (maxZ > minZ)
-                    {
-                        this.addPortalPosition(this.positionsByPortal, portalIndex, BlockPos.asLong(x, y, maxZ));
-                    }
-                }
-            }
-
-            // East/West (along Z) - Between North/South
-            if (maxZ > minZ + 1)
+            if (group.bounds().intersects(influence))
             {
-                for (int y = minY + 1; y < maxY; ++y)
-                {
-                    for (int z = minZ + 1; z < maxZ; ++z)
-                    {
-                        this.addPortalPosition(this.positionsByPortal, portalIndex, BlockPos.asLong(minX, y, z));
-                        if (maxX > minX)
-                        {
-                            this.addPortalPosition(this.positionsByPortal, portalIndex, BlockPos.asLong(maxX, y, z));
-                        }
-                    }
-                }
+                return true;
             }
         }
+
+        return false;
     }
 
-    private void processOverlapGroup(PortalWorkGroup group, TargetDimension target, PortalSearchContext context)
+    private void processGroups()
     {
-        PortalInfluence bounds = group.bounds;
-        int minY = bounds.minY();
-        int maxY = bounds.maxY();
-        int minX = bounds.minX();
-        int maxX = bounds.maxX();
-        int minZ = bounds.minZ();
-        int maxZ = bounds.maxZ();
+        if (this.searchContext == null || this.searchContext.getPortals().isEmpty())
+        {
+            this.hasData = false;
+            return;
+        }
 
-        for (int y = minY; y <= maxY; ++y)
+        PortalZoneComputer.GroupResult result;
+
+        // Groups finish on the zone workers in any order, each one only touches its own portals
+        while ((result = this.computer.pollCompleted()) != null)
         {
-            for (int z = minZ; z <= maxZ; ++z)
+            if (result.boundaries() == null)
+            {
+                this.zonesIncomplete = true;
+                this.zonesFailed = true;
+            }
+            else if (result.stored() == false)
+            {
+                this.storeZonesWhenDone = true;
+            }
+
+            for (int portalIndex : result.portalIndices())
             {
-                for (int x = minX; x <= maxX; ++x)
+                // A failed group keeps whatever it had, a portal missing from a finished group has no boundary left
+                if (result.boundaries() != null)
                 {
-                    short zone = this.resolvePortalIndex(x, y, z, target, context, group.portalIndices);
+                    PortalZoneBoundary boundary = result.boundaries().get(portalIndex);
 
-                    if (zone == NO_PORTAL)
+                    if (boundary != null)
                     {
-                        continue;
+                        this.boundariesByPortal.put(portalIndex, boundary);
                     }
-
-                    // Check if this position is on the boundary of its zone.
-                    // A position is a boundary if it belongs to zone and has at least one
-                    // neighbor that is not part of zone (could be a different zone or no zone).
-                    // This ensures each zone gets a complete perimeter border.
-                    if (this.isBoundaryInGroup(x, y, z, zone, target, context, group.portalIndices))
+                    else
                     {
-                        this.addPortalPosition(this.positionsByPortal, zone, BlockPos.asLong(x, y, z));
+                        this.boundariesByPortal.remove(portalIndex);
                     }
                 }
+
+                this.markPortalDirty(portalIndex, true);
             }
         }
-    }
-
-    private boolean isBoundaryForPortal(int worldX, int worldY, int worldZ, PortalCandidate portal,
-                                        TargetDimension target, PortalSearchContext context)
-    {
-        // A position is on the boundary if it has at least one neighbor outside the influence
-        // This creates a complete perimeter border around the zone
-        return this.isWithinInfluence(worldX + 1, worldY, worldZ, portal, target, context) == false ||
-               this.isWithinInfluence(worldX - 1, worldY, worldZ, portal, target, context) == false ||
-               this.isWithinInfluence(worldX, worldY + 1, worldZ, portal, target, context) == false ||
-               this.isWithinInfluence(worldX, worldY - 1, worldZ, portal, target, context) == false ||
-               this.isWithinInfluence(worldX, worldY, worldZ + 1, portal, target, context) == false ||
-               this.isWithinInfluence(worldX, worldY, worldZ - 1, portal, target, context) == false;
-    }
 
-    private boolean isBoundaryInGroup(int worldX, int worldY, int worldZ, short currentZone,
-                                      TargetDimension target, PortalSearchContext context, int[] portalIndices)
-    {
-        // A position is on the boundary of currentZone if it has at least one neighbor
-        // that is NOT part of currentZone (could be another zone or no zone)
-        // This creates a complete perimeter border around each zone
-        return this.resolvePortalIndex(worldX + 1, worldY, worldZ, target, context, portalIndices) != currentZone ||
-               this.resolvePortalIndex(worldX - 1, worldY, worldZ, target, context, portalIndices) != currentZone ||
-               this.resolvePortalIndex(worldX, worldY + 1, worldZ, target, context, portalIndices) != currentZone ||
-               this.resolvePortalIndex(worldX, worldY - 1, worldZ, target, context, portalIndices) != currentZone ||
-               this.resolvePortalIndex(worldX, worldY, worldZ + 1, target, context, portalIndices) != currentZone ||
-               this.resolvePortalIndex(worldX, worldY, worldZ - 1, target, context, portalIndices) != currentZone;
-    }
+        this.hasData = this.boundariesByPortal.isEmpty() == false;
+        this.renderDirty = true;
 
-    private boolean isWithinInfluence(int worldX, int worldY, int worldZ, PortalCandidate portal,
-                                      TargetDimension target, PortalSearchContext context)
-    {
-        if (worldY < context.world.getBottomY() || worldY > context.world.getTopYInclusive())
+        if (this.computer.hasPendingGroups() == false)
         {
-            return false;
-        }
-
-        int destX = context.clampX((worldX + 0.5D) * target.scale);
-        int destZ = context.clampZ((worldZ + 0.5D) * target.scale);
-        int radius = target.searchRadius;
+            if (this.storeZonesWhenDone && this.zonesIncomplete == false && this.lastDimension != null)
+            {
+                boolean simpleMode = PortalDataStore.getInstance().getZoneSettings().isSimpleMode();
+                this.computer.store(this.searchContext, simpleMode, this.boundariesByPortal,
+                                    PortalDataStore.getInstance().getZoneCacheFile(this.lastDimension));
+            }
 
-        if (portal.isOutsideSearchSquare(destX, destZ, radius))
-        {
-            return false;
+            this.storeZonesWhenDone = false;
+            this.zonesIncomplete = false;
         }
-
-        return true;
     }
 
-    private short resolvePortalIndex(int worldX, int worldY, int worldZ, TargetDimension target,
-                                     PortalSearchContext context, int[] portalIndices)
+    private void clearPositions()
     {
-        if (worldY < context.world.getBottomY() || worldY > context.world.getTopYInclusive())
-        {
-            return NO_PORTAL;
-        }
-
-        int destX = context.clampX((worldX + 0.5D) * target.scale);
-        int destZ = context.clampZ((worldZ + 0.5D) * target.scale);
-        int destY = MathHelper.floor(worldY + 0.5D);
-        int radius = target.searchRadius;
+        this.boundariesByPortal.clear();
+        this.clearPortalRenderCaches();
+    }
 
-        int bestIndex = -1;
-        double bestDist = Double.POSITIVE_INFINITY;
+    private void syncCurrentDimensionLetterCaches(World world)
+    {
+        // Keep the caches of portals that are still around, their meshes only rebuild if the letter changed
+        Map<UUID, LetterRenderCache> previous = new HashMap<>(this.currentDimensionLetterCaches);
+        PortalDimension dimension = PortalDimension.of(world);
+        this.currentDimensionLetterCaches.clear();
 
-        for (int portalIndex : portalIndices)
+        for (PortalEntry entry : PortalDataStore.getInstance().getPortals())
         {
-            PortalCandidate portal = context.portals.get(portalIndex);
-
-            if (portal.isOutsideSearchSquare(destX, destZ, radius))
+            if (entry.getDimension() == dimension)
             {
-                continue;
-            }
-
-            PortalBounds bounds = portal.bounds();
-            int portalMinY = bounds.getMinY();
+                LetterRenderCache cache = previous.remove(entry.getId());
 
-            // Check every portal block in the XZ plane (only bottom of each column matters per algorithm.txt)
-            for (int portalX = bounds.getMinX(); portalX <= bounds.getMaxX(); ++portalX)
-            {
-                for (int portalZ = bounds.getMinZ(); portalZ <= bounds.getMaxZ(); ++portalZ)
+                if (cache == null)
                 {
-                    double dx = portalX - destX;
-                    double dy = portalMinY - destY;
-                    double dz = portalZ - destZ;
-                    double distSq = dx * dx + dy * dy + dz * dz;
-
-                    if (distSq < bestDist)
-                    {
-                        bestDist = distSq;
-                        bestIndex = portalIndex;
-                    }
+                    cache = new LetterRenderCache(entry);
                 }
+
+                cache.portal = entry;
+                this.currentDimensionLetterCaches.put(entry.getId(), cache);
             }
         }
 
-        return bestIndex == -1 ? NO_PORTAL : (short) bestIndex;
+        for (LetterRenderCache cache : previous.values())
+        {
+            cache.close();
+        }
     }
 
-    private PortalSearchContext buildSearchContext(World world, TargetDimension target)
+    private void clearCurrentDimensionLetterCaches()
     {
-        PortalSearchContext context = new PortalSearchContext(world);
-        context.border = world.getWorldBorder();
-        context.borderWest = context.border.getBoundWest();
-        context.borderEast = context.border.getBoundEast() - 1.0E-5D;
-        context.borderNorth = context.border.getBoundNorth();
-        context.borderSouth = context.border.getBoundSouth() - 1.0E-5D;
-
-        List<PortalCandidate> portals = new ArrayList<>();
-
-        for (PortalEntry entry : PortalDataStore.getInstance().getPortals())
+        for (LetterRenderCache cache : this.currentDimensionLetterCaches.values())
         {
-            if (entry.getDimensionId().equals(target.dimensionId) == false)
-            {
-                continue;
-            }
-
-            PortalBounds bounds = entry.getBounds();
-
-            portals.add(new PortalCandidate(bounds, entry.getColor(), entry.getDimensionId()));
+            cache.close();
         }
 
-        context.portals = portals;
-        context.influences = this.buildInfluences(context, target);
-        return context;
+        this.currentDimensionLetterCaches.clear();
     }
 
-    private List<PortalInfluence> buildInfluences(PortalSearchContext context, TargetDimension target)
+    private void initializePortalRenderCaches()
     {
-        if (context.portals.isEmpty())
+        this.clearPortalRenderCaches();
+
+        if (this.searchContext == null)
         {
-            return List.of();
+            return;
         }
 
-        int worldMinY = context.world.getBottomY();
-        int worldMaxY = context.world.getTopYInclusive();
-        List<PortalInfluence> influences = new ArrayList<>(context.portals.size());
-
-        for (PortalCandidate portal : context.portals)
+        for (int i = 0; i < this.searchContext.getPortals().size(); ++i)
         {
-            PortalBounds bounds = portal.bounds();
-            double minDestX = bounds.getMinX() - target.searchRadius;
-            double maxDestX = bounds.getMaxX() + target.searchRadius;
-            double minDestZ = bounds.getMinZ() - target.searchRadius;
-            double maxDestZ = bounds.getMaxZ() + target.searchRadius;
-            int minSourceX = this.toSourceMin(minDestX, target.scale);
-            int maxSourceX = this.toSourceMax(maxDestX, target.scale);
-            int minSourceZ = this.toSourceMin(minDestZ, target.scale);
-            int maxSourceZ = this.toSourceMax(maxDestZ, target.scale);
-
-            int minX = Math.min(minSourceX, maxSourceX);
-            int maxX = Math.max(minSourceX, maxSourceX);
-            int minZ = Math.min(minSourceZ, maxSourceZ);
-            int maxZ = Math.max(minSourceZ, maxSourceZ);
+            PortalCandidate portal = this.searchContext.getPortals().get(i);
+            PortalInfluence influence = this.searchContext.getInfluences().size() > i ? this.searchContext.getInfluences().get(i) : null;
+            this.portalRenderCaches.put(i, new PortalRenderCache(i, portal.color(), influence));
+        }
+    }
 
-            influences.add(new PortalInfluence(minX, maxX, worldMinY, worldMaxY, minZ, maxZ));
+    private void clearPortalRenderCaches()
+    {
+        for (PortalRenderCache cache : this.portalRenderCaches.values())
+        {
+            cache.close();
         }
 
-        return influences;
+        this.portalRenderCaches.clear();
     }
 
-    private List<PortalWorkGroup> buildWorkGroups(List<PortalInfluence> influences)
+    private void markPortalDirty(int portalIndex, boolean markOutline)
     {
-        if (influences.isEmpty())
+        PortalRenderCache cache = this.portalRenderCaches.get(portalIndex);
+
+        if (cache != null)
         {
-            return List.of();
+            cache.markSectionsDirty(true, markOutline);
         }
+    }
 
-        int count = influences.size();
-        boolean[] visited = new boolean[count];
-        List<PortalWorkGroup> groups = new ArrayList<>();
-
-        for (int i = 0; i < count; ++i)
+    private void markAllPortalsDirty(boolean quads, boolean outlines)
+    {
+        for (PortalRenderCache cache : this.portalRenderCaches.values())
         {
-            if (visited[i])
-            {
-                continue;
-            }
+            cache.markSectionsDirty(quads, outlines);
+        }
+    }
 
-            IntOpenHashSet portalIndices = new IntOpenHashSet();
-            PortalInfluence bounds = influences.get(i);
-            ArrayDeque<Integer> stack = new ArrayDeque<>();
-            stack.push(i);
-            visited[i] = true;
+    // Only the sections that cross the changed layers are rebuilt. Side faces depend on the voxels next to
+    // them, so the sections one block past either end of the change are included too.
+    private void markSectionsDirty(Direction.Axis axis, int min, int max)
+    {
+        int minSection = (Math.min(min, max) - 1) >> 4;
+        int maxSection = (Math.max(min, max) + 1) >> 4;
 
-            while (stack.isEmpty() == false)
+        for (PortalRenderCache cache : this.portalRenderCaches.values())
+        {
+            for (SectionMesh section : cache.sections.values())
             {
-                int index = stack.pop();
-                portalIndices.add(index);
-                PortalInfluence influence = influences.get(index);
-                bounds = PortalInfluence.union(bounds, influence);
-
-                for (int j = 0; j < count; ++j)
+                int coordinate = switch (axis)
                 {
-                    if (visited[j])
-                    {
-                        continue;
-                    }
+                    case X -> section.x;
+                    case Y -> section.y;
+                    case Z -> section.z;
+                };
 
-                    if (influence.intersects(influences.get(j)))
-                    {
-                        visited[j] = true;
-                        stack.push(j);
-                    }
+                if (coordinate >= minSection && coordinate <= maxSection)
+                {
+                    section.quadsDirty = true;
+                    section.outlinesDirty = true;
                 }
             }
-
-            groups.add(new PortalWorkGroup(portalIndices.toIntArray(), bounds));
         }
 
-        return groups;
-    }
-
-    private int toSourceMin(double dest, double scale)
-    {
-        return (int) Math.ceil(dest / scale - 0.5D);
-    }
-
-    private int toSourceMax(double dest, double scale)
-    {
-        double upper = (dest + 1.0D) / scale - 0.5D;
-        upper = Math.nextAfter(upper, Double.NEGATIVE_INFINITY);
-        return (int) Math.floor(upper);
+        this.renderDirty = true;
     }
 
     private void renderPortals(Vec3d cameraPos, MinecraftClient mc, Profiler profiler, boolean renderLines)
@@ -815,6 +720,8 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
 
         double maxRange = mc.options.getViewDistance().getValue() * 16.0D * 2.0D;
         double maxRangeSq = maxRange * maxRange;
+        // Sections outside the view still get built, so turning around doesn't wait for a rebuild
+        SectionCulling culling = SectionCulling.distanceOnly(cameraPos, maxRangeSq);
 
         profiler.push(renderLines ? "portal_zone_lines" : "portal_zone_quads");
         for (Int2ObjectOpenHashMap.Entry<PortalRenderCache> entry : this.portalRenderCaches.int2ObjectEntrySet())
@@ -828,23 +735,16 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
 
             if (showZoneBorders)
             {
-                if (renderLines)
-                {
-                    this.buildPortalOutlines(cache, cameraPos);
-                }
-                else
-                {
-                    this.buildPortalQuads(cache, cameraPos);
-                }
+                this.buildPortalSections(cache, culling, cameraPos, renderLines);
             }
 
             // Build letters for this portal if enabled
             if (renderLetters)
             {
-                PortalCandidate portal = this.searchContext.portals.get(cache.portalIndex);
+                PortalCandidate portal = this.searchContext.getPortals().get(cache.portalIndex);
                 if (portal != null)
                 {
-                    this.buildPortalLetters(cache, cameraPos, portal, target.scale);
+                    this.buildPortalLetters(cache, portal, target.scale());
                 }
             }
         }
@@ -855,70 +755,94 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
         profiler.pop();
     }
 
-    private void buildPortalQuads(PortalRenderCache cache, Vec3d cameraPos)
+    private void buildPortalSections(PortalRenderCache cache, SectionCulling culling, Vec3d cameraPos, boolean renderLines)
     {
-        LongOpenHashSet positions = this.positionsByPortal.get(cache.portalIndex);
+        PortalZoneBoundary boundary = this.boundariesByPortal.get(cache.portalIndex);
 
-        if (positions == null || positions.isEmpty())
+        if (boundary == null || boundary.isEmpty())
         {
-            cache.resetIfUploaded();
+            cache.clearSections();
             return;
         }
 
-        if (cache.quadsDirty == false && cache.quads.isUploadedPublic())
-        {
-            return;
-        }
-
-        BufferBuilder builder = cache.quads.start(
-                () -> "minihud-portal:portal_zones/quads/" + cache.portalIndex,
-                this.renderThrough ? MaLiLibPipelines.POSITION_COLOR_MASA_NO_DEPTH_NO_CULL : MaLiLibPipelines.POSITION_COLOR_MASA_LEQUAL_DEPTH_OFFSET_1);
-        Color4f color = Color4f.fromColor(cache.color, 0.3f);
-        RenderUtils.renderBlockPositions(positions, this.layerRange, color, 0.0D, cameraPos, builder);
+        cache.syncSections(boundary);
 
-        try
+        for (SectionMesh section : cache.sections.values())
         {
-            BuiltBuffer meshData = builder.endNullable();
-
-            if (meshData != null)
+            if (culling.isInRange(section) == false)
             {
-                cache.quads.upload(meshData, this.shouldResort);
+                continue;
+            }
 
-                if (this.shouldResort)
+            if (renderLines)
+            {
+                if (section.outlinesDirty)
                 {
-                    cache.quads.startResorting(meshData, cache.quads.createVertexSorterPublic(cameraPos));
+                    this.buildSectionOutlines(cache, boundary, section);
                 }
-
-                meshData.close();
+            }
+            else if (section.quadsDirty)
+            {
+                this.buildSectionQuads(cache, boundary, section, cameraPos);
             }
         }
-        catch (Exception ignore)
-        {
-        }
-
-        cache.quadsDirty = false;
     }
 
-    private void buildPortalOutlines(PortalRenderCache cache, Vec3d cameraPos)
+    private void buildSectionQuads(PortalRenderCache cache, PortalZoneBoundary boundary, SectionMesh section, Vec3d cameraPos)
     {
-        LongOpenHashSet positions = this.positionsByPortal.get(cache.portalIndex);
+        Supplier<String> name = () -> "minihud-portal:portal_zones/quads/" + cache.portalIndex + "/" + section.getName();
+        RenderPipeline pipeline = this.renderThrough ? MaLiLibPipelines.POSITION_COLOR_MASA_NO_DEPTH_NO_CULL : MaLiLibPipelines.POSITION_COLOR_MASA_LEQUAL_DEPTH_OFFSET_1;
 
-        if (positions == null || positions.isEmpty())
+        if (section.quads == null)
         {
-            cache.resetIfUploaded();
-            return;
+            section.quads = new PortalRenderObjectVbo(name, pipeline);
         }
 
-        if (cache.outlinesDirty == false && cache.outlines.isUploadedPublic())
+        BufferBuilder builder = section.quads.start(name, pipeline);
+        Color4f color = Color4f.fromColor(cache.color, 0.3f);
+        PortalZoneMesher.renderQuads(boundary, this.layerRange, section.x, section.y, section.z, color, builder);
+
+        try
+        {
+            BuiltBuffer meshData = builder.endNullable();
+
+            if (meshData != null)
+            {
+                section.quads.upload(meshData, this.shouldResort);
+
+                if (this.shouldResort)
+                {
+                    section.quads.startResorting(meshData, section.quads.createVertexSorterPublic(section.toLocal(cameraPos)));
+                }
+
+                meshData.close();
+            }
+            else
+            {
+                // Everything in this section is hidden by the layer range
+                section.quads.closePublic();
+                section.quads = null;
+            }
+        }
+        catch (Exception ignore)
         {
-            return;
         }
 
-        BufferBuilder builder = cache.outlines.start(
-                () -> "minihud-portal:portal_zones/outlines/" + cache.portalIndex,
-                MaLiLibPipelines.DEBUG_LINES_MASA_SIMPLE_LEQUAL_DEPTH);
+        section.quadsDirty = false;
+    }
+
+    private void buildSectionOutlines(PortalRenderCache cache, PortalZoneBoundary boundary, SectionMesh section)
+    {
+        Supplier<String> name = () -> "minihud-portal:portal_zones/outlines/" + cache.portalIndex + "/" + section.getName();
+
+        if (section.outlines == null)
+        {
+            section.outlines = new PortalRenderObjectVbo(name, MaLiLibPipelines.DEBUG_LINES_MASA_SIMPLE_LEQUAL_DEPTH);
+        }
+
+        BufferBuilder builder = section.outlines.start(name, MaLiLibPipelines.DEBUG_LINES_MASA_SIMPLE_LEQUAL_DEPTH);
         Color4f color = Color4f.fromColor(cache.color, 1.0f);
-        RenderUtils.renderBlockPositionOutlines(positions, this.layerRange, color, 0.0D, cameraPos, builder);
+        PortalZoneMesher.renderOutlines(boundary, this.layerRange, section.x, section.y, section.z, color, builder);
 
         try
         {
@@ -926,66 +850,47 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
 
             if (meshData != null)
             {
-                cache.outlines.upload(meshData, false);
+                section.outlines.upload(meshData, false);
                 meshData.close();
             }
+            else
+            {
+                section.outlines.closePublic();
+                section.outlines = null;
+            }
         }
         catch (Exception ignore)
         {
         }
 
-        cache.outlinesDirty = false;
+        section.outlinesDirty = false;
     }
 
-    private void buildPortalLetters(PortalRenderCache cache, Vec3d cameraPos, PortalCandidate portal, double scale)
+    private void buildPortalLetters(PortalRenderCache cache, PortalCandidate portal, double scale)
     {
-        if (cache.lettersDirty == false && cache.letters.isUploadedPublic())
+        LetterShape shape = LetterShape.of(portal.bounds(), cache.color, portal.dimension(), scale);
+
+        if (shape.equals(cache.letterShape) && cache.letters.isUploadedPublic())
         {
             return;
         }
 
-        this.buildPortalLetters(cache.letters, cameraPos, portal.bounds(), cache.color, portal.dimensionId(),
-                                scale, Integer.toString(cache.portalIndex));
-
-        cache.lettersDirty = false;
+        if (this.buildPortalLetters(cache.letters, shape, Integer.toString(cache.portalIndex)))
+        {
+            cache.letterShape = shape;
+        }
     }
 
-    private void buildPortalLetters(PortalRenderObjectVbo letters, Vec3d cameraPos, PortalBounds bounds, int color,
-                                    String portalDimensionId, double scale, String cacheKey)
+    // Builds the glyph in a local frame centered on the letter, with X to the right and Y up.
+    // Billboarding and placement happen in drawLetters, so the mesh only depends on the shape.
+    private boolean buildPortalLetters(PortalRenderObjectVbo letters, LetterShape shape, String cacheKey)
     {
         BufferBuilder builder = letters.start(
                 () -> "minihud-portal:portal_zones/letters/" + cacheKey,
                 MaLiLibPipelines.POSITION_COLOR_MASA_NO_DEPTH_NO_CULL);  // No depth test - renders through walls
 
-        // Calculate portal center (portal bounds are in portal dimension coordinates)
-        double centerX = (bounds.getMinX() + bounds.getMaxX() + 1.0) / 2.0;
-        double centerY = (bounds.getMinY() + bounds.getMaxY() + 1.0) / 2.0;
-        double centerZ = (bounds.getMinZ() + bounds.getMaxZ() + 1.0) / 2.0;
-
-        // Translate to source dimension position (inverse of the scale)
-        double translatedCenterX = centerX / scale;
-        double translatedCenterZ = centerZ / scale;
-
-        // Calculate letter size based on portal's actual size (scaled to source X/Z)
-        double portalWidthX = bounds.getMaxX() - bounds.getMinX() + 1.0;
-        double portalWidthZ = bounds.getMaxZ() - bounds.getMinZ() + 1.0;
-        double portalWidth = Math.max(portalWidthX, portalWidthZ);
-        double portalHeight = bounds.getMaxY() - bounds.getMinY() + 1.0;
-        double letterWidth = portalWidth / Math.abs(scale);
-        double letterHeight = portalHeight;
-
-        // Determine letter based on portal's own dimension
-        boolean isNether = portalDimensionId.equals(World.NETHER.getValue().toString());
-
-        char letterChar = isNether ? 'N' : 'O';
-        LOGGER.info("Building letter '{}' for portal {} at ({}, {}, {}), size={}x{}, portalDim={}",
-                   letterChar, cacheKey, translatedCenterX, centerY, translatedCenterZ,
-                   letterWidth, letterHeight, portalDimensionId);
-
-        Color4f letterColor = Color4f.fromColor(color, 1.0f);
-        Vec3d viewDir = this.getCameraViewDirection();
-        this.drawBillboardedLetter(builder, translatedCenterX, centerY, translatedCenterZ,
-                                   letterWidth, letterHeight, letterChar, letterColor, cameraPos, viewDir);
+        Color4f letterColor = Color4f.fromColor(shape.color(), 1.0f);
+        this.drawLetterGlyph(builder, shape.getWidth(), shape.getHeight(), shape.letter(), letterColor);
 
         try
         {
@@ -995,90 +900,34 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
             {
                 letters.upload(meshData, false);
                 meshData.close();
-                LOGGER.info("Uploaded letter mesh for portal {}", cacheKey);
-            }
-            else
-            {
-                LOGGER.warn("Failed to build letter mesh for portal {} - meshData is null", cacheKey);
+                LOGGER.debug("Uploaded letter mesh '{}' for portal {}", shape.letter(), cacheKey);
+                return true;
             }
+
+            LOGGER.warn("Failed to build letter mesh for portal {} - meshData is null", cacheKey);
         }
         catch (Exception e)
         {
             LOGGER.error("Error building letter mesh for portal {}", cacheKey, e);
         }
+
+        return false;
     }
 
-    private void drawBillboardedLetter(BufferBuilder builder, double worldX, double worldY, double worldZ,
-                                       double width, double height, char letter, Color4f color,
-                                       Vec3d cameraPos, Vec3d viewDir)
+    private void drawLetterGlyph(BufferBuilder builder, double width, double height, char letter, Color4f color)
     {
-        // Camera-relative position
-        float cx = (float) (worldX - cameraPos.x);
-        float cy = (float) (worldY - cameraPos.y);
-        float cz = (float) (worldZ - cameraPos.z);
         float halfWidth = (float) (width / 2.0);
         float halfHeight = (float) (height / 2.0);
-        float stroke = this.computeLetterStroke(worldX, worldY, worldZ, halfWidth, halfHeight, cameraPos);
-
-        // For proper billboarding, we need to construct a coordinate system
-        // where the letter faces the camera.
-        // View direction: from letter to camera (opposite of camera look direction)
-        float viewX = (float) -viewDir.x;
-        float viewY = (float) -viewDir.y;
-        float viewZ = (float) -viewDir.z;
-        float viewDist = (float) Math.sqrt(viewX * viewX + viewY * viewY + viewZ * viewZ);
-
-        if (viewDist < 0.0001f)
-        {
-            // Camera is at the letter position, use default orientation
-            viewX = 0; viewY = 0; viewZ = 1;
-            viewDist = 1;
-        }
-
-        // Normalize view direction
-        viewX /= viewDist;
-        viewY /= viewDist;
-        viewZ /= viewDist;
-
-        // World up vector
-        float worldUpX = 0, worldUpY = 1, worldUpZ = 0;
-
-        // Right vector = world_up x view_dir (cross product)
-        float rightX = worldUpY * viewZ - worldUpZ * viewY;
-        float rightY = worldUpZ * viewX - worldUpX * viewZ;
-        float rightZ = worldUpX * viewY - worldUpY * viewX;
-
-        // If view direction is nearly parallel to world up, use alternate right vector
-        float rightLen = (float) Math.sqrt(rightX * rightX + rightY * rightY + rightZ * rightZ);
-        if (rightLen < 0.001f)
-        {
-            rightX = 1; rightY = 0; rightZ = 0;
-            rightLen = 1;
-        }
-        else
-        {
-            rightX /= rightLen;
-            rightY /= rightLen;
-            rightZ /= rightLen;
-        }
-
-        // Up vector = view_dir x right
-        float upX = viewY * rightZ - viewZ * rightY;
-        float upY = viewZ * rightX - viewX * rightZ;
-        float upZ = viewX * rightY - viewY * rightX;
+        float stroke = Math.max(0.0f, Math.min(halfWidth, halfHeight) * LETTER_STROKE_RELATIVE);
 
         if (letter == 'N')
         {
-            // Draw N letter using billboarded coordinate system
             // Left vertical bar
-            this.addAxisAlignedQuad(builder, cx, cy, cz, rightX, rightY, rightZ, upX, upY, upZ,
-                                    -halfWidth, -halfHeight, -halfWidth + stroke, halfHeight, color);
+            this.addAxisAlignedQuad(builder, -halfWidth, -halfHeight, -halfWidth + stroke, halfHeight, color);
             // Right vertical bar
-            this.addAxisAlignedQuad(builder, cx, cy, cz, rightX, rightY, rightZ, upX, upY, upZ,
-                                    halfWidth - stroke, -halfHeight, halfWidth, halfHeight, color);
+            this.addAxisAlignedQuad(builder, halfWidth - stroke, -halfHeight, halfWidth, halfHeight, color);
             // Diagonal bar
-            this.addStrokeQuad(builder, cx, cy, cz, rightX, rightY, rightZ, upX, upY, upZ,
-                               -halfWidth + stroke, halfHeight, halfWidth - stroke, -halfHeight, stroke, color);
+            this.addStrokeQuad(builder, -halfWidth + stroke, halfHeight, halfWidth - stroke, -halfHeight, stroke, color);
         }
         else if (letter == 'O')
         {
@@ -1104,26 +953,17 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
                 float innerX2 = cos2 * (halfWidth - stroke);
                 float innerY2 = sin2 * (halfHeight - stroke);
 
-                this.addQuad(builder, cx, cy, cz, rightX, rightY, rightZ, upX, upY, upZ,
-                             outerX1, outerY1, outerX2, outerY2, innerX2, innerY2, innerX1, innerY1, color);
+                this.addQuad(builder, outerX1, outerY1, outerX2, outerY2, innerX2, innerY2, innerX1, innerY1, color);
             }
         }
     }
 
-    private void addAxisAlignedQuad(BufferBuilder builder, float cx, float cy, float cz,
-                                    float rightX, float rightY, float rightZ,
-                                    float upX, float upY, float upZ,
-                                    float x1, float y1, float x2, float y2, Color4f color)
+    private void addAxisAlignedQuad(BufferBuilder builder, float x1, float y1, float x2, float y2, Color4f color)
     {
-        this.addQuad(builder, cx, cy, cz, rightX, rightY, rightZ, upX, upY, upZ,
-                     x1, y1, x2, y1, x2, y2, x1, y2, color);
+        this.addQuad(builder, x1, y1, x2, y1, x2, y2, x1, y2, color);
     }
 
-    private void addStrokeQuad(BufferBuilder builder, float cx, float cy, float cz,
-                               float rightX, float rightY, float rightZ,
-                               float upX, float upY, float upZ,
-                               float x1, float y1, float x2, float y2,
-                               float stroke, Color4f color)
+    private void addStrokeQuad(BufferBuilder builder, float x1, float y1, float x2, float y2, float stroke, Color4f color)
     {
         float dx = x2 - x1;
         float dy = y2 - y1;
@@ -1139,149 +979,102 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
         float ox = nx * halfStroke;
         float oy = ny * halfStroke;
 
-        this.addQuad(builder, cx, cy, cz, rightX, rightY, rightZ, upX, upY, upZ,
-                     x1 + ox, y1 + oy, x2 + ox, y2 + oy, x2 - ox, y2 - oy, x1 - ox, y1 - oy, color);
+        this.addQuad(builder, x1 + ox, y1 + oy, x2 + ox, y2 + oy, x2 - ox, y2 - oy, x1 - ox, y1 - oy, color);
     }
 
-    private void addQuad(BufferBuilder builder, float cx, float cy, float cz,
-                         float rightX, float rightY, float rightZ,
-                         float upX, float upY, float upZ,
-                         float x1, float y1, float x2, float y2,
+    private void addQuad(BufferBuilder builder, float x1, float y1, float x2, float y2,
                          float x3, float y3, float x4, float y4, Color4f color)
     {
-        builder.vertex(cx + rightX * x1 + upX * y1, cy + rightY * x1 + upY * y1, cz + rightZ * x1 + upZ * y1)
-               .color(color.r, color.g, color.b, color.a);
-        builder.vertex(cx + rightX * x2 + upX * y2, cy + rightY * x2 + upY * y2, cz + rightZ * x2 + upZ * y2)
-               .color(color.r, color.g, color.b, color.a);
-        builder.vertex(cx + rightX * x3 + upX * y3, cy + rightY * x3 + upY * y3, cz + rightZ * x3 + upZ * y3)
-               .color(color.r, color.g, color.b, color.a);
-        builder.vertex(cx + rightX * x4 + upX * y4, cy + rightY * x4 + upY * y4, cz + rightZ * x4 + upZ * y4)
-               .color(color.r, color.g, color.b, color.a);
+        builder.vertex(x1, y1, 0.0f).color(color.r, color.g, color.b, color.a);
+        builder.vertex(x2, y2, 0.0f).color(color.r, color.g, color.b, color.a);
+        builder.vertex(x3, y3, 0.0f).color(color.r, color.g, color.b, color.a);
+        builder.vertex(x4, y4, 0.0f).color(color.r, color.g, color.b, color.a);
     }
-    private Vec3d getCameraViewDirection()
-    {
-        MinecraftClient mc = MinecraftClient.getInstance();
 
-        if (mc.gameRenderer != null && mc.gameRenderer.getCamera() != null)
-        {
-            float pitch = mc.gameRenderer.getCamera().getPitch();
-            float yaw = mc.gameRenderer.getCamera().getYaw();
-            return Vec3d.fromPolar(pitch, yaw);
-        }
-
-        return new Vec3d(0.0, 0.0, 1.0);
-    }
-
-    private float computeLetterStroke(double worldX, double worldY, double worldZ,
-                                      float halfWidth, float halfHeight, Vec3d cameraPos)
+    // Rotation that turns the local letter frame to face the camera: X maps to the camera's right,
+    // Y to its up and Z back towards the camera
+    private Matrix4f createLetterBillboard()
     {
-        if (halfWidth <= 0.0f || halfHeight <= 0.0f)
-        {
-            return 0.0f;
-        }
-
-        MinecraftClient mc = MinecraftClient.getInstance();
-        if (mc.gameRenderer == null || mc.gameRenderer.getCamera() == null || mc.getWindow() == null)
-        {
-            return Math.min(halfWidth, halfHeight) * LETTER_STROKE_RELATIVE_FALLBACK;
-        }
+        Vec3d viewDir = this.getCameraViewDirection();
+        float viewX = (float) -viewDir.x;
+        float viewY = (float) -viewDir.y;
+        float viewZ = (float) -viewDir.z;
+        float viewDist = (float) Math.sqrt(viewX * viewX + viewY * viewY + viewZ * viewZ);
 
-        int framebufferHeight = mc.getWindow().getFramebufferHeight();
-        if (framebufferHeight <= 0)
+        if (viewDist < 0.0001f)
         {
-            return Math.min(halfWidth, halfHeight) * LETTER_STROKE_RELATIVE_FALLBACK;
+            viewX = 0; viewY = 0; viewZ = 1;
+            viewDist = 1;
         }
 
-        double dx = worldX - cameraPos.x;
-        double dy = worldY - cameraPos.y;
-        double dz = worldZ - cameraPos.z;
-        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
-        if (distance < 0.01)
-        {
-            distance = 0.01;
-        }
+        viewX /= viewDist;
+        viewY /= viewDist;
+        viewZ /= viewDist;
 
-        double fovDegrees = mc.options.getFov().getValue();
-        double fovRadians = Math.toRadians(fovDegrees);
-        double worldPerPixel = 2.0 * distance * Math.tan(fovRadians / 2.0) / framebufferHeight;
-        float stroke = (float) (LETTER_STROKE_PIXELS * worldPerPixel);
-        return Math.min(stroke, Math.min(halfWidth, halfHeight));
-    }
+        // Right vector = world_up x view_dir
+        float rightX = viewZ;
+        float rightY = 0;
+        float rightZ = -viewX;
 
-    private boolean shouldUpdateLettersForCamera(MinecraftClient mc)
-    {
-        if (PortalDataStore.getInstance().getZoneSettings().shouldRenderLetters() == false)
+        // If view direction is nearly parallel to world up, use alternate right vector
+        float rightLen = (float) Math.sqrt(rightX * rightX + rightZ * rightZ);
+        if (rightLen < 0.001f)
         {
-            return false;
+            rightX = 1; rightZ = 0;
         }
-
-        if (mc.gameRenderer == null || mc.gameRenderer.getCamera() == null)
+        else
         {
-            return false;
+            rightX /= rightLen;
+            rightZ /= rightLen;
         }
 
-        float yaw = mc.gameRenderer.getCamera().getYaw();
-        float pitch = mc.gameRenderer.getCamera().getPitch();
-
-        if (Float.isNaN(this.lastCameraYaw) || Float.isNaN(this.lastCameraPitch) ||
-            Math.abs(yaw - this.lastCameraYaw) > 0.001f || Math.abs(pitch - this.lastCameraPitch) > 0.001f)
-        {
-            this.markAllLettersDirty();
-            return true;
-        }
+        // Up vector = view_dir x right
+        float upX = viewY * rightZ - viewZ * rightY;
+        float upY = viewZ * rightX - viewX * rightZ;
+        float upZ = viewX * rightY - viewY * rightX;
 
-        return false;
+        return new Matrix4f(rightX, rightY, rightZ, 0.0f,
+                            upX, upY, upZ, 0.0f,
+                            viewX, viewY, viewZ, 0.0f,
+                            0.0f, 0.0f, 0.0f, 1.0f);
     }
 
-    private void updateCameraAngles(MinecraftClient mc)
+    private void drawLetters(PortalRenderObjectVbo letters, @Nullable LetterShape shape, Vec3d cameraPos, Matrix4f billboard)
     {
-        if (mc.gameRenderer == null || mc.gameRenderer.getCamera() == null)
+        if (shape == null)
         {
             return;
         }
 
-        this.lastCameraYaw = mc.gameRenderer.getCamera().getYaw();
-        this.lastCameraPitch = mc.gameRenderer.getCamera().getPitch();
+        Vec3d center = shape.getCenter();
+        Matrix4fStack modelView = RenderSystem.getModelViewStack();
+        modelView.pushMatrix();
+        modelView.translate((float) (center.x - this.lastUpdatePos.x),
+                            (float) (center.y - this.lastUpdatePos.y),
+                            (float) (center.z - this.lastUpdatePos.z));
+        modelView.mul(billboard);
+        this.drawRenderObject(letters, cameraPos);
+        modelView.popMatrix();
     }
 
-    private void markAllLettersDirty()
+    private Vec3d getCameraViewDirection()
     {
-        for (PortalRenderCache cache : this.portalRenderCaches.values())
-        {
-            cache.lettersDirty = true;
-        }
+        MinecraftClient mc = MinecraftClient.getInstance();
 
-        for (LetterRenderCache cache : this.currentDimensionLetterCaches.values())
+        if (mc.gameRenderer != null && mc.gameRenderer.getCamera() != null)
         {
-            cache.lettersDirty = true;
+            float pitch = mc.gameRenderer.getCamera().getPitch();
+            float yaw = mc.gameRenderer.getCamera().getYaw();
+            return Vec3d.fromPolar(pitch, yaw);
         }
+
+        return new Vec3d(0.0, 0.0, 1.0);
     }
 
     @Override
     public void render(Vec3d cameraPos, MinecraftClient mc, Profiler profiler)
     {
         boolean renderLines = PortalDataStore.getInstance().getZoneSettings().shouldRenderLines();
-        boolean renderLetters = PortalDataStore.getInstance().getZoneSettings().shouldRenderLetters();
-
-        // Mark letters as dirty every frame so they rebuild with current camera position for billboarding
-        if (renderLetters)
-        {
-            for (PortalRenderCache cache : this.portalRenderCaches.values())
-            {
-                if (cache != null)
-                {
-                    cache.lettersDirty = true;
-                }
-            }
-            for (LetterRenderCache cache : this.currentDimensionLetterCaches.values())
-            {
-                if (cache != null)
-                {
-                    cache.lettersDirty = true;
-                }
-            }
-        }
-
         this.renderPortals(cameraPos, mc, profiler, renderLines);
     }
 
@@ -1301,6 +1094,8 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
         boolean renderLetters = settings.shouldRenderLetters();
         double maxRange = mc.options.getViewDistance().getValue() * 16.0D * 2.0D;
         double maxRangeSq = maxRange * maxRange;
+        Matrix4f billboard = renderLetters ? this.createLetterBillboard() : null;
+        SectionCulling culling = SectionCulling.create(mc, cameraPos, this.getCameraViewDirection(), maxRangeSq);
 
         for (PortalRenderCache cache : this.portalRenderCaches.values())
         {
@@ -1311,19 +1106,18 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
 
             if (showZoneBorders)
             {
-                if (renderLines)
+                for (SectionMesh section : cache.sections.values())
                 {
-                    this.drawRenderObject(cache.outlines, cameraPos);
-                }
-                else
-                {
-                    this.drawRenderObject(cache.quads, cameraPos);
+                    if (culling.isVisible(section))
+                    {
+                        this.drawSection(renderLines ? section.outlines : section.quads, section, cameraPos);
+                    }
                 }
             }
 
             if (renderLetters)
             {
-                this.drawRenderObject(cache.letters, cameraPos);
+                this.drawLetters(cache.letters, cache.letterShape, cameraPos, billboard);
             }
         }
 
@@ -1336,7 +1130,7 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
                     continue;
                 }
 
-                this.drawRenderObject(cache.letters, cameraPos);
+                this.drawLetters(cache.letters, cache.letterShape, cameraPos, billboard);
             }
         }
     }
@@ -1344,25 +1138,44 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
     @Override
     public void updateAll()
     {
-        this.needsFullRebuild = true;
+        // The zones themselves don't depend on the layer range, only their meshes do
+        this.markAllPortalsDirty(true, true);
+        this.renderDirty = true;
     }
 
     @Override
     public void updateBetweenX(int minX, int maxX)
     {
-        this.needsFullRebuild = true;
+        this.markSectionsDirty(Direction.Axis.X, minX, maxX);
     }
 
     @Override
     public void updateBetweenY(int minY, int maxY)
     {
-        this.needsFullRebuild = true;
+        this.markSectionsDirty(Direction.Axis.Y, minY, maxY);
     }
 
     @Override
     public void updateBetweenZ(int minZ, int maxZ)
     {
-        this.needsFullRebuild = true;
+        this.markSectionsDirty(Direction.Axis.Z, minZ, maxZ);
+    }
+
+    // Section meshes are relative to their section origin, so they are placed against the update position here
+    private void drawSection(@Nullable PortalRenderObjectVbo obj, SectionMesh section, Vec3d cameraPos)
+    {
+        if (obj == null)
+        {
+            return;
+        }
+
+        Matrix4fStack modelView = RenderSystem.getModelViewStack();
+        modelView.pushMatrix();
+        modelView.translate((float) (section.getOriginX() - this.lastUpdatePos.x),
+                            (float) (section.getOriginY() - this.lastUpdatePos.y),
+                            (float) (section.getOriginZ() - this.lastUpdatePos.z));
+        this.drawRenderObject(obj, section.toLocal(cameraPos));
+        modelView.popMatrix();
     }
 
     private void drawRenderObject(PortalRenderObjectVbo obj, Vec3d cameraPos)
@@ -1401,6 +1214,7 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
         boolean renderLetters = settings.shouldRenderLetters();
         double maxRange = mc.options.getViewDistance().getValue() * 16.0D * 2.0D;
         double maxRangeSq = maxRange * maxRange;
+        SectionCulling culling = SectionCulling.distanceOnly(cameraPos, maxRangeSq);
 
         for (PortalRenderCache cache : this.portalRenderCaches.values())
         {
@@ -1409,23 +1223,13 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
                 continue;
             }
 
-            if (showZoneBorders)
+            if (showZoneBorders && cache.hasDirtySections(this.boundariesByPortal.get(cache.portalIndex), culling, renderLines))
             {
-                if (renderLines)
-                {
-                    if (cache.outlinesDirty || cache.outlines.isUploadedPublic() == false)
-                    {
-                        return true;
-                    }
-                }
-                else if (cache.quadsDirty || cache.quads.isUploadedPublic() == false)
-                {
-                    return true;
-                }
+                return true;
             }
 
             // Check letters dirty state only if render letters is enabled
-            if (renderLetters && (cache.lettersDirty || cache.letters.isUploadedPublic() == false))
+            if (renderLetters && cache.letters.isUploadedPublic() == false)
             {
                 return true;
             }
@@ -1440,7 +1244,7 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
                     continue;
                 }
 
-                if (cache.lettersDirty || cache.letters.isUploadedPublic() == false)
+                if (cache.letters.isUploadedPublic() == false)
                 {
                     return true;
                 }
@@ -1452,7 +1256,7 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
 
     private boolean hasLetterPortals()
     {
-        if (this.searchContext != null && this.searchContext.portals.isEmpty() == false)
+        if (this.searchContext != null && this.searchContext.getPortals().isEmpty() == false)
         {
             return true;
         }
@@ -1469,158 +1273,292 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
                 continue;
             }
 
-            if (cache.lettersDirty == false && cache.letters.isUploadedPublic())
+            PortalEntry portal = cache.portal;
+            LetterShape shape = LetterShape.of(portal.getBounds(), portal.getColor(), portal.getDimension(), 1.0D);
+
+            if (shape.equals(cache.letterShape) && cache.letters.isUploadedPublic())
             {
                 continue;
             }
 
-            PortalEntry portal = cache.portal;
-            this.buildPortalLetters(cache.letters, cameraPos, portal.getBounds(), cache.color,
-                                    portal.getDimensionId(), 1.0D, cache.key);
-            cache.lettersDirty = false;
+            if (this.buildPortalLetters(cache.letters, shape, cache.key))
+            {
+                cache.letterShape = shape;
+            }
         }
     }
 
     @Nullable
     private TargetDimension resolveTarget(World world)
     {
-        String dimensionId = world.getRegistryKey().getValue().toString();
+        PortalDimension dimension = PortalDimension.of(world);
 
-        if (dimensionId.equals(World.NETHER.getValue().toString()))
+        if (dimension == PortalDimension.NETHER)
         {
-            return new TargetDimension(World.OVERWORLD.getValue().toString(), 8.0D, 128);
+            return NETHER_TARGET;
         }
 
-        if (dimensionId.equals(World.OVERWORLD.getValue().toString()))
+        if (dimension == PortalDimension.OVERWORLD)
         {
-            return new TargetDimension(World.NETHER.getValue().toString(), 1.0D / 8.0D, 16);
+            return OVERWORLD_TARGET;
         }
 
         return null;
     }
 
-    private static class PortalSearchContext
+    private static class PortalRenderCache
     {
-        private final World world;
-        private WorldBorder border;
-        private double borderWest;
-        private double borderEast;
-        private double borderNorth;
-        private double borderSouth;
-        private List<PortalCandidate> portals = List.of();
-        private List<PortalInfluence> influences = List.of();
+        private int portalIndex;
+        private final int color;
+        private final PortalInfluence influence;
+        private final Long2ObjectOpenHashMap<SectionMesh> sections = new Long2ObjectOpenHashMap<>();
+        @Nullable private PortalZoneBoundary sectionsBoundary;
+        private final PortalRenderObjectVbo letters;
+        @Nullable private LetterShape letterShape;
 
-        private PortalSearchContext(World world)
+        private PortalRenderCache(int portalIndex, int color, PortalInfluence influence)
+        {
+            this.portalIndex = portalIndex;
+            this.color = color;
+            this.influence = influence;
+            this.letters = this.createLetters();
+        }
+
+        private PortalRenderObjectVbo createLetters()
         {
-            this.world = world;
+            return new PortalRenderObjectVbo(
+                    () -> "minihud-portal:portal_zones/letters/" + this.portalIndex,
+                    MaLiLibPipelines.POSITION_COLOR_MASA_NO_DEPTH_NO_CULL);  // No depth test - renders through walls
+        }
+
+        private boolean isInRange(Vec3d cameraPos, double maxRangeSq)
+        {
+            if (this.influence == null)
+            {
+                return true;
+            }
+
+            return this.influence.distanceSq2D(cameraPos.x, cameraPos.z) <= maxRangeSq;
+        }
+
+        // Matches the sections to a new boundary, keeping the buffers of the sections that are still used
+        private void syncSections(PortalZoneBoundary boundary)
+        {
+            if (this.sectionsBoundary == boundary)
+            {
+                return;
+            }
+
+            LongOpenHashSet keys = boundary.getSections();
+
+            for (Long2ObjectMap.Entry<SectionMesh> entry : this.sections.long2ObjectEntrySet())
+            {
+                if (keys.contains(entry.getLongKey()) == false)
+                {
+                    entry.getValue().close();
+                }
+            }
+
+            this.sections.keySet().retainAll(keys);
+
+            for (long key : keys)
+            {
+                SectionMesh section = this.sections.get(key);
+
+                if (section == null)
+                {
+                    this.sections.put(key, new SectionMesh(key));
+                }
+                else
+                {
+                    section.quadsDirty = true;
+                    section.outlinesDirty = true;
+                }
+            }
+
+            this.sectionsBoundary = boundary;
+        }
+
+        private boolean hasDirtySections(@Nullable PortalZoneBoundary boundary, SectionCulling culling, boolean renderLines)
+        {
+            if (boundary == null || boundary.isEmpty())
+            {
+                return this.sections.isEmpty() == false;
+            }
+
+            if (boundary != this.sectionsBoundary)
+            {
+                return true;
+            }
+
+            for (SectionMesh section : this.sections.values())
+            {
+                if ((renderLines ? section.outlinesDirty : section.quadsDirty) && culling.isInRange(section))
+                {
+                    return true;
+                }
+            }
+
+            return false;
         }
 
-        private int clampX(double x)
+        private void markSectionsDirty(boolean quads, boolean outlines)
         {
-            return MathHelper.floor(MathHelper.clamp(x, this.borderWest, this.borderEast));
+            for (SectionMesh section : this.sections.values())
+            {
+                section.quadsDirty |= quads;
+                section.outlinesDirty |= outlines;
+            }
         }
 
-        private int clampZ(double z)
+        private void clearSections()
         {
-            return MathHelper.floor(MathHelper.clamp(z, this.borderNorth, this.borderSouth));
+            for (SectionMesh section : this.sections.values())
+            {
+                section.close();
+            }
+
+            this.sections.clear();
+            this.sectionsBoundary = null;
         }
 
+        private void close()
+        {
+            this.clearSections();
+            this.letters.closePublic();
+        }
     }
 
-    private static class PortalRenderCache
+    // The zone mesh of one 16x16x16 section of a portal, relative to the section origin.
+    // A buffer is null when the section has nothing to draw in that mode.
+    private static class SectionMesh
     {
-        private final int portalIndex;
-        private final int color;
-        private final PortalInfluence influence;
-        private PortalRenderObjectVbo quads;
-        private PortalRenderObjectVbo outlines;
-        private PortalRenderObjectVbo letters;
+        private final int x;
+        private final int y;
+        private final int z;
+        @Nullable private PortalRenderObjectVbo quads;
+        @Nullable private PortalRenderObjectVbo outlines;
         private boolean quadsDirty = true;
         private boolean outlinesDirty = true;
-        private boolean lettersDirty = true;
 
-        private PortalRenderCache(int portalIndex, int color, PortalInfluence influence)
+        private SectionMesh(long key)
         {
-            this.portalIndex = portalIndex;
-            this.color = color;
-            this.influence = influence;
-            this.quads = this.createQuads();
-            this.outlines = this.createOutlines();
-            this.letters = this.createLetters();
+            this.x = ChunkSectionPos.unpackX(key);
+            this.y = ChunkSectionPos.unpackY(key);
+            this.z = ChunkSectionPos.unpackZ(key);
         }
 
-        private PortalRenderObjectVbo createQuads()
+        private int getOriginX()
         {
-            return new PortalRenderObjectVbo(
-                    () -> "minihud-portal:portal_zones/quads/" + this.portalIndex,
-                    MaLiLibPipelines.POSITION_COLOR_MASA_LEQUAL_DEPTH_OFFSET_1);
+            return this.x << 4;
         }
 
-        private PortalRenderObjectVbo createOutlines()
+        private int getOriginY()
         {
-            return new PortalRenderObjectVbo(
-                    () -> "minihud-portal:portal_zones/outlines/" + this.portalIndex,
-                    MaLiLibPipelines.DEBUG_LINES_MASA_SIMPLE_LEQUAL_DEPTH);
+            return this.y << 4;
         }
 
-        private PortalRenderObjectVbo createLetters()
+        private int getOriginZ()
         {
-            return new PortalRenderObjectVbo(
-                    () -> "minihud-portal:portal_zones/letters/" + this.portalIndex,
-                    MaLiLibPipelines.POSITION_COLOR_MASA_NO_DEPTH_NO_CULL);  // No depth test - renders through walls
+            return this.z << 4;
         }
 
-        private boolean isInRange(Vec3d cameraPos, double maxRangeSq)
+        private String getName()
         {
-            if (this.influence == null)
-            {
-                return true;
-            }
+            return this.x + "," + this.y + "," + this.z;
+        }
 
-            return this.influence.distanceSq2D(cameraPos.x, cameraPos.z) <= maxRangeSq;
+        private Vec3d toLocal(Vec3d pos)
+        {
+            return pos.subtract(this.getOriginX(), this.getOriginY(), this.getOriginZ());
         }
 
-        private void resetIfUploaded()
+        private void close()
         {
-            if (this.quads.isUploadedPublic() || this.outlines.isUploadedPublic() || this.letters.isUploadedPublic())
+            if (this.quads != null)
             {
-                this.resetBuffers();
+                this.quads.closePublic();
+                this.quads = null;
+            }
+
+            if (this.outlines != null)
+            {
+                this.outlines.closePublic();
+                this.outlines = null;
             }
         }
+    }
+
+    // Per frame culling of zone sections: the same horizontal view range as the portal caches, plus a cone
+    // around the view direction. The cone covers the screen diagonal with some slack for FOV effects like
+    // sprinting, and is widened by the section's bounding sphere, so it never drops a visible section.
+    private record SectionCulling(Vec3d cameraPos, double maxRangeSq, Vec3d viewDir, double halfAngle)
+    {
+        private static final double SECTION_RADIUS = Math.sqrt(3.0D) * 8.0D;
+        private static final double FOV_SLACK = 1.5D;
 
-        private void resetBuffers()
+        private static SectionCulling distanceOnly(Vec3d cameraPos, double maxRangeSq)
         {
-            this.quads.closePublic();
-            this.outlines.closePublic();
-            this.letters.closePublic();
-            this.quads = this.createQuads();
-            this.outlines = this.createOutlines();
-            this.letters = this.createLetters();
-            this.quadsDirty = true;
-            this.outlinesDirty = true;
-            this.lettersDirty = true;
+            return new SectionCulling(cameraPos, maxRangeSq, Vec3d.ZERO, Math.PI);
         }
 
-        private void close()
+        private static SectionCulling create(MinecraftClient mc, Vec3d cameraPos, Vec3d viewDir, double maxRangeSq)
         {
-            this.quads.closePublic();
-            this.outlines.closePublic();
-            this.letters.closePublic();
+            int width = Math.max(1, mc.getWindow().getFramebufferWidth());
+            int height = Math.max(1, mc.getWindow().getFramebufferHeight());
+            double aspect = (double) width / (double) height;
+            double tanHalfFov = Math.tan(Math.toRadians(mc.options.getFov().getValue()) / 2.0D) * FOV_SLACK;
+            double halfAngle = Math.atan(tanHalfFov * Math.sqrt(1.0D + aspect * aspect));
+            return new SectionCulling(cameraPos, maxRangeSq, viewDir, halfAngle);
+        }
+
+        private boolean isInRange(SectionMesh section)
+        {
+            double clampedX = MathHelper.clamp(this.cameraPos.x, section.getOriginX(), section.getOriginX() + 16.0D);
+            double clampedZ = MathHelper.clamp(this.cameraPos.z, section.getOriginZ(), section.getOriginZ() + 16.0D);
+            double dx = this.cameraPos.x - clampedX;
+            double dz = this.cameraPos.z - clampedZ;
+            return (dx * dx) + (dz * dz) <= this.maxRangeSq;
+        }
+
+        private boolean isVisible(SectionMesh section)
+        {
+            if (this.isInRange(section) == false)
+            {
+                return false;
+            }
+
+            if (this.halfAngle >= Math.PI)
+            {
+                return true;
+            }
+
+            double dx = section.getOriginX() + 8.0D - this.cameraPos.x;
+            double dy = section.getOriginY() + 8.0D - this.cameraPos.y;
+            double dz = section.getOriginZ() + 8.0D - this.cameraPos.z;
+            double distance = Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
+
+            if (distance <= SECTION_RADIUS)
+            {
+                return true;
+            }
+
+            double cos = ((dx * this.viewDir.x) + (dy * this.viewDir.y) + (dz * this.viewDir.z)) / distance;
+            double angle = Math.acos(MathHelper.clamp(cos, -1.0D, 1.0D));
+            return angle <= this.halfAngle + Math.asin(SECTION_RADIUS / distance);
         }
     }
 
     private static class LetterRenderCache
     {
-        private final PortalEntry portal;
+        private PortalEntry portal;
         private final PortalRenderObjectVbo letters;
-        private final int color;
         private final String key;
-        private boolean lettersDirty = true;
+        @Nullable private LetterShape letterShape;
 
         private LetterRenderCache(PortalEntry portal)
         {
             this.portal = portal;
-            this.color = portal.getColor();
             this.key = "current/" + portal.getId().toString();
             this.letters = new PortalRenderObjectVbo(
                     () -> "minihud-portal:portal_zones/letters/" + this.key,
@@ -1643,65 +1581,36 @@ public class PortalZoneRenderer extends OverlayRendererBase implements IRangeCha
         }
     }
 
-    private record PortalCandidate(PortalBounds bounds, int color, String dimensionId)
-    {
-        private int minX() { return this.bounds.getMinX(); }
-        private int minY() { return this.bounds.getMinY(); }
-        private int minZ() { return this.bounds.getMinZ(); }
-        private int maxX() { return this.bounds.getMaxX(); }
-        private int maxY() { return this.bounds.getMaxY(); }
-        private int maxZ() { return this.bounds.getMaxZ(); }
-
-        private boolean isOutsideSearchSquare(int destX, int destZ, int radius)
-        {
-            return this.maxX() < destX - radius || this.minX() > destX + radius ||
-                   this.maxZ() < destZ - radius || this.minZ() > destZ + radius;
-        }
-    }
-
-    private record PortalInfluence(int minX, int maxX, int minY, int maxY, int minZ, int maxZ)
+    // Everything a letter mesh depends on, the mesh is rebuilt only when this changes
+    private record LetterShape(char letter, int color, PortalBounds bounds, double scale)
     {
-        private boolean intersects(PortalInfluence other)
+        private static LetterShape of(PortalBounds bounds, int color, PortalDimension portalDimension, double scale)
         {
-            return this.maxX >= other.minX && this.minX <= other.maxX &&
-                   this.maxY >= other.minY && this.minY <= other.maxY &&
-                   this.maxZ >= other.minZ && this.minZ <= other.maxZ;
+            // Determine letter based on portal's own dimension
+            char letter = portalDimension == PortalDimension.NETHER ? 'N' : 'O';
+            return new LetterShape(letter, color, bounds, scale);
         }
 
-        private double distanceSq2D(double x, double z)
+        // Portal center translated to the source dimension (inverse of the scale)
+        private Vec3d getCenter()
         {
-            double clampedX = Math.max(this.minX, Math.min(this.maxX, x));
-            double clampedZ = Math.max(this.minZ, Math.min(this.maxZ, z));
-            double dx = x - clampedX;
-            double dz = z - clampedZ;
-            return (dx * dx) + (dz * dz);
+            double centerX = (this.bounds.getMinX() + this.bounds.getMaxX() + 1.0) / 2.0;
+            double centerY = (this.bounds.getMinY() + this.bounds.getMaxY() + 1.0) / 2.0;
+            double centerZ = (this.bounds.getMinZ() + this.bounds.getMaxZ() + 1.0) / 2.0;
+            return new Vec3d(centerX / this.scale, centerY, centerZ / this.scale);
         }
 
-        private static PortalInfluence union(PortalInfluence first, PortalInfluence second)
+        // Letter size based on portal's actual size (scaled to source X/Z)
+        private double getWidth()
         {
-            int minX = Math.min(first.minX, second.minX);
-            int maxX = Math.max(first.maxX, second.maxX);
-            int minY = Math.min(first.minY, second.minY);
-            int maxY = Math.max(first.maxY, second.maxY);
-            int minZ = Math.min(first.minZ, second.minZ);
-            int maxZ = Math.max(first.maxZ, second.maxZ);
-            return new PortalInfluence(minX, maxX, minY, maxY, minZ, maxZ);
+            double portalWidthX = this.bounds.getMaxX() - this.bounds.getMinX() + 1.0;
+            double portalWidthZ = this.bounds.getMaxZ() - this.bounds.getMinZ() + 1.0;
+            return Math.max(portalWidthX, portalWidthZ) / Math.abs(this.scale);
         }
-    }
 
-    private static class PortalWorkGroup
-    {
-        private final int[] portalIndices;
-        private final PortalInfluence bounds;
-
-        private PortalWorkGroup(int[] portalIndices, PortalInfluence bounds)
+        private double getHeight()
         {
-            this.portalIndices = portalIndices;
-            this.bounds = bounds;
+            return this.bounds.getMaxY() - this.bounds.getMinY() + 1.0;
         }
     }
-
-    private record TargetDimension(String dimensionId, double scale, int searchRadius)
-    {
-    }
 }
@@ -5,12 +5,15 @@ import fi.dy.masa.malilib.util.JsonUtils;
 
 public class PortalZoneSettings
 {
+    public static final int DEFAULT_SCAN_BUDGET_NANOS = 2_000_000;
+
     private boolean showZoneBorders;
     private boolean renderLines;
     private boolean renderThrough;
     private boolean renderLetters;
     private boolean simpleMode;
     private boolean disablePortalScanning;
+    private int scanBudgetNanos = DEFAULT_SCAN_BUDGET_NANOS;
 
     public boolean isShowZoneBorders()
     {
@@ -42,6 +45,11 @@ public class PortalZoneSettings
         return this.disablePortalScanning;
     }
 
+    public int getScanBudgetNanos()
+    {
+        return this.scanBudgetNanos;
+    }
+
     public void setShowZoneBorders(boolean showZoneBorders)
     {
         this.showZoneBorders = showZoneBorders;
@@ -72,6 +80,11 @@ public class PortalZoneSettings
         this.disablePortalScanning = disablePortalScanning;
     }
 
+    public void setScanBudgetNanos(int scanBudgetNanos)
+    {
+        this.scanBudgetNanos = Math.max(0, scanBudgetNanos);
+    }
+
     public void toggleShowZoneBorders()
     {
         this.showZoneBorders = !this.showZoneBorders;
@@ -110,6 +123,7 @@ public class PortalZoneSettings
         this.renderLetters = false;
         this.simpleMode = false;
         this.disablePortalScanning = false;
+        this.scanBudgetNanos = DEFAULT_SCAN_BUDGET_NANOS;
     }
 
     public JsonObject toJson()
@@ -121,6 +135,7 @@ public class PortalZoneSettings
         obj.addProperty("render_letters", this.renderLetters);
         obj.addProperty("simple_mode", this.simpleMode);
         obj.addProperty("disable_portal_scanning", this.disablePortalScanning);
+        obj.addProperty("scan_budget_nanos", this.scanBudgetNanos);
         return obj;
     }
 
@@ -137,5 +152,6 @@ public class PortalZoneSettings
         this.renderLetters = JsonUtils.getBooleanOrDefault(obj, "render_letters", this.renderLetters);
         this.simpleMode = JsonUtils.getBooleanOrDefault(obj, "simple_mode", this.simpleMode);
         this.disablePortalScanning = JsonUtils.getBooleanOrDefault(obj, "disable_portal_scanning", this.disablePortalScanning);
+        this.setScanBudgetNanos(JsonUtils.getIntegerOrDefault(obj, "scan_budget_nanos", this.scanBudgetNanos));
     }
 }
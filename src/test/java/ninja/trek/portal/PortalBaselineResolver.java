@@ -0,0 +1,96 @@
+package ninja.trek.portal;
+
+import java.util.List;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.border.WorldBorder;
+import ninja.trek.portal.PortalSearchContext.TargetDimension;
+
+// The zone resolution the way it was written before any of the optimizations: every portal of the target dimension
+// is checked for every position, against every block of its bottom layer. Far too slow for the game, but simple
+// enough to trust, so the optimized paths are tested against it.
+final class PortalBaselineResolver
+{
+    static final int NO_PORTAL = -1;
+
+    private final TargetDimension target;
+    private final int bottomY;
+    private final int topY;
+    private final double borderWest;
+    private final double borderEast;
+    private final double borderNorth;
+    private final double borderSouth;
+    private final List<PortalBounds> portals;
+
+    PortalBaselineResolver(TargetDimension target, int bottomY, int topY, WorldBorder border, List<PortalBounds> portals)
+    {
+        this.target = target;
+        this.bottomY = bottomY;
+        this.topY = topY;
+        this.borderWest = border.getBoundWest();
+        this.borderEast = border.getBoundEast() - 1.0E-5D;
+        this.borderNorth = border.getBoundNorth();
+        this.borderSouth = border.getBoundSouth() - 1.0E-5D;
+        this.portals = portals;
+    }
+
+    int resolvePortalIndex(int worldX, int worldY, int worldZ)
+    {
+        if (worldY < this.bottomY || worldY > this.topY)
+        {
+            return NO_PORTAL;
+        }
+
+        int destX = MathHelper.floor(MathHelper.clamp((worldX + 0.5D) * this.target.scale(), this.borderWest, this.borderEast));
+        int destZ = MathHelper.floor(MathHelper.clamp((worldZ + 0.5D) * this.target.scale(), this.borderNorth, this.borderSouth));
+        int destY = MathHelper.floor(worldY + 0.5D);
+        int radius = this.target.searchRadius();
+        int bestIndex = NO_PORTAL;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        for (int portalIndex = 0; portalIndex < this.portals.size(); ++portalIndex)
+        {
+            PortalBounds bounds = this.portals.get(portalIndex);
+
+            if (bounds.getMaxX() < destX - radius || bounds.getMinX() > destX + radius ||
+                bounds.getMaxZ() < destZ - radius || bounds.getMinZ() > destZ + radius)
+            {
+                continue;
+            }
+
+            for (int portalX = bounds.getMinX(); portalX <= bounds.getMaxX(); ++portalX)
+            {
+                for (int portalZ = bounds.getMinZ(); portalZ <= bounds.getMaxZ(); ++portalZ)
+                {
+                    double dx = portalX - destX;
+                    double dy = bounds.getMinY() - destY;
+                    double dz = portalZ - destZ;
+                    double distSq = dx * dx + dy * dy + dz * dz;
+
+                    if (distSq < bestDist)
+                    {
+                        bestDist = distSq;
+                        bestIndex = portalIndex;
+                    }
+                }
+            }
+        }
+
+        return bestIndex;
+    }
+
+    // A position is on the boundary of a zone if it belongs to it and any of its six neighbors doesn't
+    boolean isBoundary(int worldX, int worldY, int worldZ, int portalIndex)
+    {
+        if (this.resolvePortalIndex(worldX, worldY, worldZ) != portalIndex)
+        {
+            return false;
+        }
+
+        return this.resolvePortalIndex(worldX + 1, worldY, worldZ) != portalIndex ||
+               this.resolvePortalIndex(worldX - 1, worldY, worldZ) != portalIndex ||
+               this.resolvePortalIndex(worldX, worldY + 1, worldZ) != portalIndex ||
+               this.resolvePortalIndex(worldX, worldY - 1, worldZ) != portalIndex ||
+               this.resolvePortalIndex(worldX, worldY, worldZ + 1) != portalIndex ||
+               this.resolvePortalIndex(worldX, worldY, worldZ - 1) != portalIndex;
+    }
+}
@@ -0,0 +1,90 @@
+package ninja.trek.portal;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PortalBoundsTest
+{
+    // The closest point of the bottom layer must give the same distance as checking each of its blocks
+    @Test
+    void bottomDistanceMatchesBlockLoop()
+    {
+        Random random = new Random(9L);
+
+        for (int trial = 0; trial < 20000; ++trial)
+        {
+            // Up to the 21x21 maximum portal size
+            int x = random.nextInt(64) - 32;
+            int y = random.nextInt(64) - 32;
+            int z = random.nextInt(64) - 32;
+            PortalBounds bounds = new PortalBounds(x, y, z, x + random.nextInt(21), y + random.nextInt(21), z + random.nextInt(21));
+            int destX = random.nextInt(96) - 48;
+            int destY = random.nextInt(96) - 48;
+            int destZ = random.nextInt(96) - 48;
+
+            assertEquals(blockLoopDistanceSq(bounds, destX, destY, destZ), bounds.getBottomDistanceSq(destX, destY, destZ),
+                         () -> bounds.getMinPos() + " to " + bounds.getMaxPos() + " from " + destX + ", " + destY + ", " + destZ);
+        }
+    }
+
+    // Picking the closest portal of a list must keep the earliest one on ties, like the block loop did
+    @Test
+    void closestPortalMatchesBlockLoop()
+    {
+        Random random = new Random(10L);
+
+        for (int trial = 0; trial < 2000; ++trial)
+        {
+            List<PortalBounds> portals = PortalTestData.randomPortals(random, 1 + random.nextInt(12), 16, -4, 4);
+            int destX = random.nextInt(24) - 12;
+            int destY = random.nextInt(12) - 6;
+            int destZ = random.nextInt(24) - 12;
+            int expected = -1;
+            int actual = -1;
+            double expectedDist = Double.POSITIVE_INFINITY;
+            double actualDist = Double.POSITIVE_INFINITY;
+
+            for (int i = 0; i < portals.size(); ++i)
+            {
+                double blockDist = blockLoopDistanceSq(portals.get(i), destX, destY, destZ);
+                double closestDist = portals.get(i).getBottomDistanceSq(destX, destY, destZ);
+
+                if (blockDist < expectedDist)
+                {
+                    expectedDist = blockDist;
+                    expected = i;
+                }
+
+                if (closestDist < actualDist)
+                {
+                    actualDist = closestDist;
+                    actual = i;
+                }
+            }
+
+            assertEquals(expected, actual);
+        }
+    }
+
+    // The resolver before the closest point query, one distance per block of the bottom layer
+    private static double blockLoopDistanceSq(PortalBounds bounds, int destX, int destY, int destZ)
+    {
+        double best = Double.POSITIVE_INFINITY;
+
+        for (int portalX = bounds.getMinX(); portalX <= bounds.getMaxX(); ++portalX)
+        {
+            for (int portalZ = bounds.getMinZ(); portalZ <= bounds.getMaxZ(); ++portalZ)
+            {
+                double dx = portalX - destX;
+                double dy = bounds.getMinY() - destY;
+                double dz = portalZ - destZ;
+                best = Math.min(best, dx * dx + dy * dy + dz * dz);
+            }
+        }
+
+        return best;
+    }
+}
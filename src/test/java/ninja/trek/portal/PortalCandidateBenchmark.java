@@ -0,0 +1,155 @@
+package ninja.trek.portal;
+
+import java.util.List;
+import java.util.Random;
+
+// Compares the scalar and the Vector API candidate searches on synthetic portal sets, run it with
+// ./gradlew benchmarkCandidateSearch. The column winner search is what the zone ColumnResolver runs
+// once per interval of every column, over the candidates in range of that column. The table search
+// is only used by the link preview, over every portal of the target dimension. Not a JMH harness,
+// each size gets warmup rounds first and the best of a few timed rounds is reported.
+public final class PortalCandidateBenchmark
+{
+    private static final int[] SIZES = { 4, 8, 16, 32, 64, 128, 256, 1024 };
+    private static final int QUERIES = 4096;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int TIMED_ROUNDS = 10;
+    // The nether search radius, portals and queries share one square of the search diameter so most portals are in range
+    private static final int RADIUS = 128;
+    private static final int SPREAD = 256;
+
+    private PortalCandidateBenchmark()
+    {
+    }
+
+    public static void main(String[] args)
+    {
+        if (PortalCandidateTable.hasVectorSearch() == false)
+        {
+            System.out.println("The Vector API search isn't available, both columns measure the scalar search");
+        }
+
+        long checksum = 0L;
+
+        System.out.println("Column winner search (zones)");
+        System.out.printf("%8s %14s %14s%n", "size", "scalar ns", "vector ns");
+
+        for (int size : SIZES)
+        {
+            checksum += benchmarkLines(size);
+        }
+
+        System.out.println("Table search (link preview)");
+        System.out.printf("%8s %14s %14s%n", "size", "scalar ns", "vector ns");
+
+        for (int size : SIZES)
+        {
+            checksum += benchmarkTable(size);
+        }
+
+        // Printed so the JIT can't drop the searches
+        System.out.println("checksum " + checksum);
+    }
+
+    // The lines are built like ColumnResolver builds them for one column
+    private static long benchmarkLines(int size)
+    {
+        Random random = new Random(size);
+        double[] constants = new double[size];
+        double[] slopes = new double[size];
+        int[] queries = new int[QUERIES];
+
+        for (int i = 0; i < size; ++i)
+        {
+            long dx = random.nextInt(RADIUS + 1);
+            long dz = random.nextInt(RADIUS + 1);
+            long portalY = random.nextInt(120);
+            constants[i] = (double) (dx * dx + dz * dz + portalY * portalY);
+            slopes[i] = (double) (2L * portalY);
+        }
+
+        for (int i = 0; i < QUERIES; ++i)
+        {
+            queries[i] = random.nextInt(128);
+        }
+
+        long checksum = 0L;
+        long bestScalar = Long.MAX_VALUE;
+        long bestVector = Long.MAX_VALUE;
+
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; ++round)
+        {
+            long start = System.nanoTime();
+
+            for (int y : queries)
+            {
+                checksum += PortalCandidateTable.findLowestLineScalar(constants, slopes, 0, size, -1, y);
+            }
+
+            long middle = System.nanoTime();
+
+            for (int y : queries)
+            {
+                checksum += PortalCandidateTable.findLowestLine(constants, slopes, size, y);
+            }
+
+            long end = System.nanoTime();
+
+            if (round >= WARMUP_ROUNDS)
+            {
+                bestScalar = Math.min(bestScalar, middle - start);
+                bestVector = Math.min(bestVector, end - middle);
+            }
+        }
+
+        System.out.printf("%8d %14.1f %14.1f%n", size, (double) bestScalar / QUERIES, (double) bestVector / QUERIES);
+        return checksum;
+    }
+
+    private static long benchmarkTable(int size)
+    {
+        Random random = new Random(size);
+        List<PortalBounds> portals = PortalTestData.randomPortals(random, size, SPREAD, 0, 120);
+        PortalCandidateTable table = PortalCandidateTable.of(portals);
+        int[] queries = new int[QUERIES * 3];
+
+        for (int i = 0; i < QUERIES; ++i)
+        {
+            queries[i * 3] = random.nextInt(SPREAD) - SPREAD / 2;
+            queries[i * 3 + 1] = random.nextInt(128);
+            queries[i * 3 + 2] = random.nextInt(SPREAD) - SPREAD / 2;
+        }
+
+        long checksum = 0L;
+        long bestScalar = Long.MAX_VALUE;
+        long bestVector = Long.MAX_VALUE;
+
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; ++round)
+        {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < queries.length; i += 3)
+            {
+                checksum += table.findClosestScalar(0, -1, queries[i], queries[i + 1], queries[i + 2], RADIUS);
+            }
+
+            long middle = System.nanoTime();
+
+            for (int i = 0; i < queries.length; i += 3)
+            {
+                checksum += table.findClosest(queries[i], queries[i + 1], queries[i + 2], RADIUS);
+            }
+
+            long end = System.nanoTime();
+
+            if (round >= WARMUP_ROUNDS)
+            {
+                bestScalar = Math.min(bestScalar, middle - start);
+                bestVector = Math.min(bestVector, end - middle);
+            }
+        }
+
+        System.out.printf("%8d %14.1f %14.1f%n", size, (double) bestScalar / QUERIES, (double) bestVector / QUERIES);
+        return checksum;
+    }
+}
@@ -0,0 +1,116 @@
+package ninja.trek.portal;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PortalCandidateTableTest
+{
+    // The packed table must pick the same portal as a loop over the bounds, including the earliest one on ties
+    @Test
+    void findClosestMatchesBoundsLoop()
+    {
+        Random random = new Random(24L);
+
+        for (int trial = 0; trial < 2000; ++trial)
+        {
+            List<PortalBounds> portals = PortalTestData.randomPortals(random, random.nextInt(70), 48, -4, 4);
+            PortalCandidateTable table = PortalCandidateTable.of(portals);
+            int radius = 1 + random.nextInt(24);
+
+            for (int i = 0; i < 50; ++i)
+            {
+                int destX = random.nextInt(64) - 32;
+                int destY = random.nextInt(16) - 8;
+                int destZ = random.nextInt(64) - 32;
+
+                assertEquals(findClosest(portals, destX, destY, destZ, radius), table.findClosest(destX, destY, destZ, radius));
+            }
+        }
+    }
+
+    // The Vector API search plus the scalar tail must pick the same portal as the scalar search alone.
+    // The sizes cover tables below the vector threshold, exact multiples of the lanes and every tail length.
+    @Test
+    void vectorSearchMatchesScalar()
+    {
+        assumeTrue(PortalCandidateTable.hasVectorSearch(), "The Vector API search isn't available");
+        Random random = new Random(25L);
+
+        for (int trial = 0; trial < 3000; ++trial)
+        {
+            List<PortalBounds> portals = PortalTestData.randomPortals(random, random.nextInt(80), 32, -4, 4);
+            PortalCandidateTable table = PortalCandidateTable.of(portals);
+            int radius = 1 + random.nextInt(16);
+
+            for (int i = 0; i < 50; ++i)
+            {
+                int destX = random.nextInt(48) - 24;
+                int destY = random.nextInt(16) - 8;
+                int destZ = random.nextInt(48) - 24;
+
+                assertEquals(table.findClosestScalar(0, -1, destX, destY, destZ, radius), table.findClosest(destX, destY, destZ, radius));
+            }
+        }
+    }
+
+    // The column argmin must pick the same line with and without the Vector API, the earliest one on ties.
+    // Few distinct slopes and constants make ties common, the counts reach past the vector threshold with every tail length.
+    @Test
+    void lowestLineMatchesScalar()
+    {
+        Random random = new Random(26L);
+
+        for (int trial = 0; trial < 3000; ++trial)
+        {
+            int count = 1 + random.nextInt(400);
+            double[] constants = new double[count];
+            double[] slopes = new double[count];
+
+            for (int i = 0; i < count; ++i)
+            {
+                int portalY = random.nextInt(8) - 4;
+                int dx = random.nextInt(4);
+                int dz = random.nextInt(4);
+                constants[i] = dx * dx + dz * dz + portalY * portalY;
+                slopes[i] = 2 * portalY;
+            }
+
+            for (int y = -6; y <= 6; ++y)
+            {
+                assertEquals(PortalCandidateTable.findLowestLineScalar(constants, slopes, 0, count, -1, y),
+                             PortalCandidateTable.findLowestLine(constants, slopes, count, y));
+            }
+        }
+    }
+
+    private static int findClosest(List<PortalBounds> portals, int destX, int destY, int destZ, int radius)
+    {
+        int bestIndex = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        for (int portalIndex = 0; portalIndex < portals.size(); ++portalIndex)
+        {
+            PortalBounds bounds = portals.get(portalIndex);
+
+            if (bounds.getMaxX() < destX - radius || bounds.getMinX() > destX + radius ||
+                bounds.getMaxZ() < destZ - radius || bounds.getMinZ() > destZ + radius)
+            {
+                continue;
+            }
+
+            double distSq = bounds.getBottomDistanceSq(destX, destY, destZ);
+
+            if (distSq < bestDist)
+            {
+                bestDist = distSq;
+                bestIndex = portalIndex;
+            }
+        }
+
+        return bestIndex;
+    }
+}
@@ -0,0 +1,89 @@
+package ninja.trek.portal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.world.border.WorldBorder;
+import ninja.trek.portal.PortalSearchContext.TargetDimension;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PortalSearchContextTest
+{
+    // The grid lookup must list exactly the portals whose search square reaches the rectangle, in index order
+    @Test
+    void candidatesMatchLinearScan()
+    {
+        Random random = new Random(32L);
+
+        for (int trial = 0; trial < 300; ++trial)
+        {
+            int radius = 1 + random.nextInt(40);
+            TargetDimension target = new TargetDimension(PortalDimension.NETHER, 1.0D, radius);
+            List<PortalBounds> portals = PortalTestData.randomPortals(random, 1 + random.nextInt(80), 300, 0, 10);
+            PortalSearchContext context = PortalSearchContext.create(target, 0, 16, new WorldBorder(),
+                                                                     PortalTestData.toEntries(target.dimension(), portals));
+
+            for (int i = 0; i < 200; ++i)
+            {
+                int minX = random.nextInt(400) - 200;
+                int minZ = random.nextInt(400) - 200;
+                int maxX = minX + random.nextInt(random.nextBoolean() ? 4 : 150);
+                int maxZ = minZ + random.nextInt(random.nextBoolean() ? 4 : 150);
+                IntArrayList expected = new IntArrayList();
+
+                for (int portalIndex = 0; portalIndex < portals.size(); ++portalIndex)
+                {
+                    PortalBounds bounds = portals.get(portalIndex);
+
+                    if (bounds.getMaxX() >= minX - radius && bounds.getMinX() <= maxX + radius &&
+                        bounds.getMaxZ() >= minZ - radius && bounds.getMinZ() <= maxZ + radius)
+                    {
+                        expected.add(portalIndex);
+                    }
+                }
+
+                assertArrayEquals(expected.toIntArray(), context.getCandidates(minX, maxX, minZ, maxZ));
+            }
+        }
+    }
+
+    // Stored zones are matched by fingerprint, so it has to change with anything the zones are computed from
+    @Test
+    void fingerprintFollowsZoneInputs()
+    {
+        TargetDimension target = new TargetDimension(PortalDimension.NETHER, 8.0D, 128);
+        List<PortalBounds> portals = List.of(new PortalBounds(0, 64, 0, 1, 66, 0), new PortalBounds(40, 70, -12, 40, 72, -11));
+        WorldBorder border = new WorldBorder();
+        long fingerprint = fingerprint(target, 0, 255, border, PortalTestData.toEntries(target.dimension(), portals));
+
+        assertEquals(fingerprint, fingerprint(target, 0, 255, new WorldBorder(), PortalTestData.toEntries(target.dimension(), portals)));
+        assertNotEquals(fingerprint, PortalSearchContext.create(target, 0, 255, border, PortalTestData.toEntries(target.dimension(), portals)).getFingerprint(true));
+        assertNotEquals(fingerprint, fingerprint(new TargetDimension(PortalDimension.NETHER, 8.0D, 16), 0, 255, border,
+                                                 PortalTestData.toEntries(target.dimension(), portals)));
+        assertNotEquals(fingerprint, fingerprint(target, 0, 127, border, PortalTestData.toEntries(target.dimension(), portals)));
+        assertNotEquals(fingerprint, fingerprint(target, 0, 255, border, PortalTestData.toEntries(target.dimension(), portals.reversed())));
+        assertNotEquals(fingerprint, fingerprint(target, 0, 255, border,
+                                                 PortalTestData.toEntries(target.dimension(), List.of(portals.get(0), new PortalBounds(40, 70, -12, 40, 73, -11)))));
+
+        WorldBorder smallBorder = new WorldBorder();
+        smallBorder.setSize(1000.0D);
+        assertNotEquals(fingerprint, fingerprint(target, 0, 255, smallBorder, PortalTestData.toEntries(target.dimension(), portals)));
+
+        // Colors and portals of other dimensions don't change the zones
+        List<PortalEntry> entries = new ArrayList<>(PortalTestData.toEntries(target.dimension(), portals));
+        entries.get(0).setColor(0x00FF00);
+        entries.add(new PortalEntry(new UUID(1L, 0L), PortalDimension.OVERWORLD, new PortalBounds(5, 5, 5, 5, 7, 6), "", 0));
+        assertEquals(fingerprint, fingerprint(target, 0, 255, border, entries));
+    }
+
+    private static long fingerprint(TargetDimension target, int bottomY, int topY, WorldBorder border, List<PortalEntry> entries)
+    {
+        return PortalSearchContext.create(target, bottomY, topY, border, entries).getFingerprint(false);
+    }
+}
@@ -0,0 +1,63 @@
+package ninja.trek.portal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+// Seeded random portal layouts for the tests that compare the optimized zone code against simple versions
+final class PortalTestData
+{
+    private PortalTestData()
+    {
+    }
+
+    // A portal of 1 to 3 columns and 2 to 4 blocks of height, along X or Z, with its bottom between minY and maxY
+    static PortalBounds randomBounds(Random random, int spread, int minY, int maxY)
+    {
+        int x = random.nextInt(spread) - spread / 2;
+        int z = random.nextInt(spread) - spread / 2;
+        int y = minY + random.nextInt(Math.max(1, maxY - minY + 1));
+        int width = random.nextInt(3);
+        int height = 1 + random.nextInt(3);
+
+        if (random.nextBoolean())
+        {
+            return new PortalBounds(x, y, z, x + width, y + height, z);
+        }
+
+        return new PortalBounds(x, y, z, x, y + height, z + width);
+    }
+
+    // Every so often a portal repeats an earlier one, so the tie-breaks between equal distances get exercised
+    static List<PortalBounds> randomPortals(Random random, int count, int spread, int minY, int maxY)
+    {
+        List<PortalBounds> portals = new ArrayList<>(count);
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (i > 0 && random.nextInt(6) == 0)
+            {
+                portals.add(portals.get(random.nextInt(portals.size())));
+            }
+            else
+            {
+                portals.add(randomBounds(random, spread, minY, maxY));
+            }
+        }
+
+        return portals;
+    }
+
+    static List<PortalEntry> toEntries(PortalDimension dimension, List<PortalBounds> portals)
+    {
+        List<PortalEntry> entries = new ArrayList<>(portals.size());
+
+        for (int i = 0; i < portals.size(); ++i)
+        {
+            entries.add(new PortalEntry(new UUID(0L, i), dimension, portals.get(i), "", 0xFFFFFF));
+        }
+
+        return entries;
+    }
+}
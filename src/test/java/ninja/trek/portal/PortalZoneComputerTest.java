@@ -0,0 +1,415 @@
+package ninja.trek.portal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.world.border.WorldBorder;
+import ninja.trek.portal.PortalSearchContext.PortalInfluence;
+import ninja.trek.portal.PortalSearchContext.TargetDimension;
+import ninja.trek.portal.PortalZoneComputer.GroupResult;
+import ninja.trek.portal.PortalZoneComputer.PortalWorkGroup;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class PortalZoneComputerTest
+{
+    // The real search radii are 16 and 128, which would make the brute force baseline take minutes.
+    // Smaller ones keep the same shapes: zones several times wider or narrower than the portals.
+    private static final TargetDimension[] TARGETS = {
+            new TargetDimension(PortalDimension.NETHER, 1.0D / 8.0D, 3),
+            new TargetDimension(PortalDimension.NETHER, 1.0D, 10),
+            new TargetDimension(PortalDimension.OVERWORLD, 8.0D, 24)
+    };
+    private static final long TIMEOUT_NANOS = 60_000_000_000L;
+
+    // Random portal sets, mostly small groups with every tenth layout crowded into one big group
+    @Test
+    void zonesMatchBaseline()
+    {
+        Random random = new Random(11L);
+        PortalZoneComputer computer = new PortalZoneComputer();
+
+        for (int trial = 0; trial < 120; ++trial)
+        {
+            TargetDimension target = TARGETS[random.nextInt(TARGETS.length)];
+            int bottomY = random.nextInt(3) - 2;
+            int topY = bottomY + 10 + random.nextInt(30);
+            WorldBorder border = new WorldBorder();
+
+            // The destinations of some layouts get clamped to a small border
+            if (random.nextInt(4) == 0)
+            {
+                border.setCenter(random.nextInt(20) - 10, random.nextInt(20) - 10);
+                border.setSize(30 + random.nextInt(20));
+            }
+
+            int count = 1 + random.nextInt(trial % 10 == 0 ? 40 : 8);
+            int spread = target.scale() > 1.0D ? 60 : 25;
+            List<PortalBounds> portals = PortalTestData.randomPortals(random, count, spread, bottomY, topY);
+
+            assertZonesMatchBaseline(computer, target, bottomY, topY, border, portals);
+        }
+    }
+
+    // Many portals in one overlap group, on a lattice with shared bottoms so that zones meet on planes of equal
+    // distance. Whole cells get assigned at once here, and a flat world makes their bounds tight, so any tie
+    // the branch and bound gets wrong shows up.
+    @Test
+    void latticeZonesMatchBaseline()
+    {
+        Random random = new Random(21L);
+        PortalZoneComputer computer = new PortalZoneComputer();
+
+        for (int trial = 0; trial < 60; ++trial)
+        {
+            TargetDimension target = TARGETS[random.nextInt(TARGETS.length)];
+            int bottomY = 0;
+            int topY = random.nextInt(3) == 0 ? 0 : random.nextInt(12);
+            int spacing = 1 + random.nextInt(target.searchRadius() + 2);
+            int rows = 2 + random.nextInt(4);
+            int columns = 2 + random.nextInt(6);
+            List<PortalBounds> portals = new ArrayList<>();
+
+            for (int row = 0; row < rows; ++row)
+            {
+                for (int column = 0; column < columns; ++column)
+                {
+                    int x = column * spacing;
+                    int z = row * spacing;
+                    int y = random.nextInt(4) == 0 ? random.nextInt(topY + 1) : 0;
+                    portals.add(new PortalBounds(x, y, z, x + random.nextInt(2), y + 2, z));
+                }
+            }
+
+            // The resolution order is the list order, shuffled so that earlier isn't also closer to the origin
+            Collections.shuffle(portals, random);
+            assertZonesMatchBaseline(computer, target, bottomY, topY, new WorldBorder(), portals);
+        }
+    }
+
+    // A long chain of portals, like along a nether highway, is one group whose tiles each span several cells
+    // of the candidate grid. Each tile only resolves the portals the grid finds for it, which must not change
+    // any zone. The search radii vary, so does the grid cell size.
+    @Test
+    void chainZonesMatchBaseline()
+    {
+        Random random = new Random(23L);
+        PortalZoneComputer computer = new PortalZoneComputer();
+
+        for (int trial = 0; trial < 40; ++trial)
+        {
+            int radius = 2 + random.nextInt(11);
+            TargetDimension target = new TargetDimension(PortalDimension.NETHER, random.nextBoolean() ? 1.0D : 8.0D, radius);
+            int bottomY = 0;
+            int topY = 4 + random.nextInt(12);
+            List<PortalBounds> portals = new ArrayList<>();
+            int z = 0;
+
+            // Along Z, since the tiles split the group into rows of Z
+            for (int i = 0, count = 8 + random.nextInt(16); i < count; ++i)
+            {
+                int x = random.nextInt(radius + 1);
+                int y = random.nextInt(topY + 1);
+                portals.add(new PortalBounds(x, y, z, x, y + 2, z + random.nextInt(2)));
+                z += radius + random.nextInt(radius + 1);
+            }
+
+            Collections.shuffle(portals, random);
+            assertZonesMatchBaseline(computer, target, bottomY, topY, new WorldBorder(), portals);
+        }
+    }
+
+    // The grid and union-find grouping must find the same groups as testing every pair of influences
+    // Hundreds of portals in range of every column, like a portal farm or a stacked hub, so the column winner
+    // search runs over enough lines to take the Vector API path when it is available
+    @Test
+    void denseZonesMatchBaseline()
+    {
+        Random random = new Random(27L);
+        PortalZoneComputer computer = new PortalZoneComputer();
+
+        for (int trial = 0; trial < 4; ++trial)
+        {
+            TargetDimension target = new TargetDimension(PortalDimension.NETHER, 1.0D, 16);
+            int bottomY = 0;
+            int topY = 8 + random.nextInt(8);
+            List<PortalBounds> portals = PortalTestData.randomPortals(random, 280 + random.nextInt(120), 8, bottomY, topY);
+            assertZonesMatchBaseline(computer, target, bottomY, topY, new WorldBorder(), portals);
+        }
+    }
+
+    @Test
+    void workGroupsMatchPairwiseGrouping()
+    {
+        Random random = new Random(22L);
+
+        for (int trial = 0; trial < 2000; ++trial)
+        {
+            int count = random.nextInt(60);
+            int spread = 10 + random.nextInt(300);
+            List<PortalInfluence> influences = new ArrayList<>(count);
+
+            for (int i = 0; i < count; ++i)
+            {
+                int x = random.nextInt(spread) - spread / 2;
+                int z = random.nextInt(spread) - spread / 2;
+                int y = random.nextInt(5);
+                // A few influences much larger than the rest, which set the grid cell size
+                int sizeX = 1 + random.nextInt(random.nextInt(10) == 0 ? 120 : 40);
+                int sizeZ = 1 + random.nextInt(40);
+                influences.add(new PortalInfluence(x, x + sizeX, y, y + random.nextInt(5), z, z + sizeZ));
+            }
+
+            int[] expected = pairwiseGroups(influences);
+            List<PortalWorkGroup> groups = PortalZoneComputer.buildWorkGroups(influences);
+            int[] actual = new int[count];
+            Arrays.fill(actual, -1);
+
+            for (int group = 0; group < groups.size(); ++group)
+            {
+                int[] members = groups.get(group).portalIndices();
+                PortalInfluence bounds = influences.get(members[0]);
+
+                for (int i = 0; i < members.length; ++i)
+                {
+                    assertEquals(-1, actual[members[i]], "portal in two groups");
+                    assertTrue(i == 0 || members[i] > members[i - 1], "group not in index order");
+                    actual[members[i]] = group;
+                    bounds = PortalInfluence.union(bounds, influences.get(members[i]));
+                }
+
+                assertEquals(bounds, groups.get(group).bounds());
+            }
+
+            // Same partition, the group numbers may differ
+            for (int i = 0; i < count; ++i)
+            {
+                assertTrue(actual[i] != -1, "portal in no group");
+
+                for (int j = 0; j < i; ++j)
+                {
+                    assertEquals(expected[i] == expected[j], actual[i] == actual[j], "grouping of portals " + j + " and " + i);
+                }
+            }
+        }
+    }
+
+    // The grouping before the grid, a depth first search testing each influence against all others
+    private static int[] pairwiseGroups(List<PortalInfluence> influences)
+    {
+        int[] groups = new int[influences.size()];
+        Arrays.fill(groups, -1);
+        int groupCount = 0;
+
+        for (int start = 0; start < influences.size(); ++start)
+        {
+            if (groups[start] != -1)
+            {
+                continue;
+            }
+
+            IntArrayList stack = new IntArrayList();
+            stack.add(start);
+            groups[start] = groupCount;
+
+            while (stack.isEmpty() == false)
+            {
+                int current = stack.removeInt(stack.size() - 1);
+
+                for (int other = 0; other < influences.size(); ++other)
+                {
+                    if (groups[other] == -1 && influences.get(current).intersects(influences.get(other)))
+                    {
+                        groups[other] = groupCount;
+                        stack.add(other);
+                    }
+                }
+            }
+
+            ++groupCount;
+        }
+
+        return groups;
+    }
+
+    static void assertZonesMatchBaseline(PortalZoneComputer computer, TargetDimension target, int bottomY, int topY,
+                                         WorldBorder border, List<PortalBounds> portals)
+    {
+        PortalSearchContext context = PortalSearchContext.create(target, bottomY, topY, border,
+                                                                 PortalTestData.toEntries(target.dimension(), portals));
+        PortalBaselineResolver baseline = new PortalBaselineResolver(target, bottomY, topY, border, portals);
+        List<PortalWorkGroup> groups = PortalZoneComputer.buildWorkGroups(context.getInfluences());
+        Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = computeZones(computer, context, groups);
+        Int2IntOpenHashMap expectedCounts = new Int2IntOpenHashMap();
+        PortalWorkGroup[] groupOf = new PortalWorkGroup[portals.size()];
+
+        for (PortalWorkGroup group : groups)
+        {
+            for (int portalIndex : group.portalIndices())
+            {
+                groupOf[portalIndex] = group;
+            }
+        }
+
+        for (PortalWorkGroup group : groups)
+        {
+            if (group.portalIndices().length == 1)
+            {
+                expectedCounts.put(group.portalIndices()[0], countShell(group.bounds()));
+            }
+            else
+            {
+                countBaselineBoundaries(baseline, group, bottomY, topY, groupOf, expectedCounts);
+            }
+        }
+
+        for (int portalIndex = 0; portalIndex < portals.size(); ++portalIndex)
+        {
+            PortalZoneBoundary boundary = boundaries.get(portalIndex);
+            PortalWorkGroup group = groupOf[portalIndex];
+            int count = 0;
+
+            if (boundary != null)
+            {
+                for (int column = 0; column < boundary.getColumnCount(); ++column)
+                {
+                    int x = boundary.getColumnX(column);
+                    int z = boundary.getColumnZ(column);
+
+                    for (int span = boundary.getSpanStart(column); span < boundary.getSpanEnd(column); ++span)
+                    {
+                        for (int y = boundary.getSpanMinY(span); y <= boundary.getSpanMaxY(span); ++y)
+                        {
+                            final int index = portalIndex;
+                            final int blockY = y;
+                            boolean expected = isExpectedBoundary(baseline, group, x, y, z, portalIndex);
+                            assertTrue(expected,
+                                       () -> "portal " + index + " has a boundary at " + x + ", " + blockY + ", " + z + " the baseline doesn't");
+                            ++count;
+                        }
+                    }
+                }
+            }
+
+            assertEquals(expectedCounts.get(portalIndex), count, "boundary size of portal " + portalIndex);
+        }
+    }
+
+    // Zones are only drawn inside the box of their group. When the border clamps the destinations, a zone can
+    // continue past it, the part outside isn't drawn and the box edge isn't a boundary.
+    private static boolean isExpectedBoundary(PortalBaselineResolver baseline, PortalWorkGroup group, int x, int y, int z, int portalIndex)
+    {
+        PortalInfluence box = group.bounds();
+
+        if (x < box.minX() || x > box.maxX() || y < box.minY() || y > box.maxY() || z < box.minZ() || z > box.maxZ())
+        {
+            return false;
+        }
+
+        // A portal without overlaps is drawn as its whole influence box, which is its zone unless the border clamps
+        if (group.portalIndices().length == 1)
+        {
+            return x == box.minX() || x == box.maxX() || y == box.minY() || y == box.maxY() || z == box.minZ() || z == box.maxZ();
+        }
+
+        return baseline.isBoundary(x, y, z, portalIndex);
+    }
+
+    private static int countShell(PortalInfluence box)
+    {
+        long sizeX = box.maxX() - box.minX() + 1;
+        long sizeY = box.maxY() - box.minY() + 1;
+        long sizeZ = box.maxZ() - box.minZ() + 1;
+        long inner = Math.max(0L, sizeX - 2) * Math.max(0L, sizeY - 2) * Math.max(0L, sizeZ - 2);
+        return (int) (sizeX * sizeY * sizeZ - inner);
+    }
+
+    // Labels the group box with a margin once, then counts the boundary positions of each zone in it.
+    // The margin only provides the neighbors.
+    private static void countBaselineBoundaries(PortalBaselineResolver baseline, PortalWorkGroup group, int bottomY, int topY,
+                                                PortalWorkGroup[] groupOf, Int2IntOpenHashMap counts)
+    {
+        int minX = group.bounds().minX() - 1;
+        int minZ = group.bounds().minZ() - 1;
+        int minY = bottomY - 1;
+        int sizeX = group.bounds().maxX() - minX + 2;
+        int sizeZ = group.bounds().maxZ() - minZ + 2;
+        int sizeY = topY - minY + 2;
+        int[] labels = new int[sizeX * sizeY * sizeZ];
+
+        for (int x = 0; x < sizeX; ++x)
+        {
+            for (int z = 0; z < sizeZ; ++z)
+            {
+                for (int y = 0; y < sizeY; ++y)
+                {
+                    labels[(x * sizeZ + z) * sizeY + y] = baseline.resolvePortalIndex(minX + x, minY + y, minZ + z);
+                }
+            }
+        }
+
+        for (int x = 1; x < sizeX - 1; ++x)
+        {
+            for (int z = 1; z < sizeZ - 1; ++z)
+            {
+                for (int y = 1; y < sizeY - 1; ++y)
+                {
+                    int index = (x * sizeZ + z) * sizeY + y;
+                    int label = labels[index];
+
+                    // Group boxes can overlap, the zones of other groups are counted in their own box
+                    if (label == PortalBaselineResolver.NO_PORTAL || groupOf[label] != group)
+                    {
+                        continue;
+                    }
+
+                    if (labels[index + sizeZ * sizeY] != label || labels[index - sizeZ * sizeY] != label ||
+                        labels[index + sizeY] != label || labels[index - sizeY] != label ||
+                        labels[index + 1] != label || labels[index - 1] != label)
+                    {
+                        counts.addTo(label, 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Int2ObjectOpenHashMap<PortalZoneBoundary> computeZones(PortalZoneComputer computer, PortalSearchContext context,
+                                                                         List<PortalWorkGroup> groups)
+    {
+        Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = new Int2ObjectOpenHashMap<>();
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+
+        computer.submit(context, groups, false);
+
+        while (computer.hasPendingGroups())
+        {
+            GroupResult result = computer.pollCompleted();
+
+            if (result == null)
+            {
+                if (System.nanoTime() > deadline)
+                {
+                    fail("The zone groups didn't finish in time");
+                }
+
+                Thread.onSpinWait();
+                continue;
+            }
+
+            assertNotNull(result.boundaries(), "A zone group failed");
+            boundaries.putAll(result.boundaries());
+        }
+
+        return boundaries;
+    }
+}
@@ -0,0 +1,158 @@
+package ninja.trek.portal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PortalZoneDiskCacheTest
+{
+    // The builder merges spans in any order, the result must still hold exactly the added positions
+    @Test
+    void builderKeepsAddedPositions()
+    {
+        Random random = new Random(20L);
+
+        for (int trial = 0; trial < 500; ++trial)
+        {
+            LongOpenHashSet positions = new LongOpenHashSet();
+            PortalZoneBoundary boundary = randomBoundary(random, positions);
+
+            for (int x = -20; x <= 20; ++x)
+            {
+                for (int z = -20; z <= 20; ++z)
+                {
+                    for (int y = -70; y <= -40; ++y)
+                    {
+                        assertEquals(positions.contains(BlockPos.asLong(x, y, z)), boundary.contains(x, y, z));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void boundaryRoundTrip() throws IOException
+    {
+        Random random = new Random(200L);
+
+        for (int trial = 0; trial < 500; ++trial)
+        {
+            PortalZoneBoundary boundary = randomBoundary(random, new LongOpenHashSet());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (DataOutputStream output = new DataOutputStream(bytes))
+            {
+                boundary.write(output);
+            }
+
+            try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+            {
+                assertSameBoundary(boundary, PortalZoneBoundary.read(input, Integer.MAX_VALUE));
+                assertEquals(-1, input.read(), "bytes left after the boundary");
+            }
+        }
+    }
+
+    @Test
+    void cacheFileRoundTrip(@TempDir Path directory)
+    {
+        Random random = new Random(2000L);
+        Path file = directory.resolve("zones.bin");
+        Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = new Int2ObjectOpenHashMap<>();
+
+        for (int portalIndex = 0; portalIndex < 10; portalIndex += 1 + random.nextInt(2))
+        {
+            boundaries.put(portalIndex, randomBoundary(random, new LongOpenHashSet()));
+        }
+
+        assertNull(PortalZoneDiskCache.read(file, 42L, 10), "read before anything was written");
+
+        PortalZoneDiskCache.write(file, 42L, boundaries);
+        Int2ObjectOpenHashMap<PortalZoneBoundary> read = PortalZoneDiskCache.read(file, 42L, 10);
+
+        assertNotNull(read);
+        assertEquals(boundaries.keySet(), read.keySet());
+
+        for (int portalIndex : boundaries.keySet())
+        {
+            assertSameBoundary(boundaries.get(portalIndex), read.get(portalIndex));
+        }
+
+        // Zones of other portals or other world settings, or of more portals than there are now
+        assertNull(PortalZoneDiskCache.read(file, 43L, 10));
+        assertNull(PortalZoneDiskCache.read(file, 42L, 8));
+    }
+
+    @Test
+    void truncatedCacheFileIsIgnored(@TempDir Path directory) throws IOException
+    {
+        Random random = new Random(20000L);
+        Path file = directory.resolve("zones.bin");
+        Int2ObjectOpenHashMap<PortalZoneBoundary> boundaries = new Int2ObjectOpenHashMap<>();
+        boundaries.put(0, randomBoundary(random, new LongOpenHashSet()));
+
+        PortalZoneDiskCache.write(file, 7L, boundaries);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertNull(PortalZoneDiskCache.read(file, 7L, 1));
+    }
+
+    // Random spans around y -64, some overlapping or touching so the builder has to merge them
+    private static PortalZoneBoundary randomBoundary(Random random, LongOpenHashSet positions)
+    {
+        PortalZoneBoundary.Builder builder = new PortalZoneBoundary.Builder();
+        int spans = random.nextInt(60);
+
+        for (int i = 0; i < spans; ++i)
+        {
+            int x = random.nextInt(41) - 20;
+            int z = random.nextInt(41) - 20;
+            int minY = -70 + random.nextInt(25);
+            int maxY = minY + random.nextInt(6);
+            builder.add(x, z, minY, maxY);
+
+            for (int y = minY; y <= maxY; ++y)
+            {
+                positions.add(BlockPos.asLong(x, y, z));
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static void assertSameBoundary(PortalZoneBoundary expected, PortalZoneBoundary actual)
+    {
+        assertEquals(expected.getColumnCount(), actual.getColumnCount());
+        assertEquals(expected.getSpanCount(), actual.getSpanCount());
+
+        for (int column = 0; column < expected.getColumnCount(); ++column)
+        {
+            assertEquals(expected.getColumnX(column), actual.getColumnX(column));
+            assertEquals(expected.getColumnZ(column), actual.getColumnZ(column));
+            assertEquals(expected.getSpanStart(column), actual.getSpanStart(column));
+            assertEquals(expected.getSpanEnd(column), actual.getSpanEnd(column));
+        }
+
+        for (int span = 0; span < expected.getSpanCount(); ++span)
+        {
+            assertEquals(expected.getSpanMinY(span), actual.getSpanMinY(span));
+            assertEquals(expected.getSpanMaxY(span), actual.getSpanMaxY(span));
+        }
+    }
+}
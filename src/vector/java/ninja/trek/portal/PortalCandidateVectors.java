@@ -0,0 +1,147 @@
+package ninja.trek.portal;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API versions of the PortalCandidateTable argmins, one candidate per lane.
+// jdk.incubator.vector only exists when the game is started with --add-modules jdk.incubator.vector, so this
+// lives in its own source set and PortalCandidateTable only loads it by name once it found the module at runtime.
+public final class PortalCandidateVectors implements PortalCandidateTable.VectorSearch
+{
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    // Half the width, so a load of ints widens into exactly one vector of doubles
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    private static final int LANES = DOUBLES.length();
+    private static final double[] LANE_INDICES = laneIndices();
+
+    @Override
+    public int getLanes()
+    {
+        return LANES;
+    }
+
+    // Lanes are in index order and only a strictly smaller minimum replaces the best, so ties go to the earliest index like in the scalar loop
+    @Override
+    public int findClosest(int[] minX, int[] maxX, int[] minZ, int[] maxZ, int[] minY, int end,
+                           int destX, int destY, int destZ, int radius)
+    {
+        int bestIndex = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < end; i += LANES)
+        {
+            DoubleVector distSq = distanceSq(IntVector.fromArray(INTS, minX, i), IntVector.fromArray(INTS, maxX, i),
+                                             IntVector.fromArray(INTS, minZ, i), IntVector.fromArray(INTS, maxZ, i),
+                                             IntVector.fromArray(INTS, minY, i), destX, destY, destZ, radius);
+            double min = distSq.reduceLanes(VectorOperators.MIN);
+
+            if (min < bestDist)
+            {
+                bestDist = min;
+                bestIndex = i + distSq.eq(min).firstTrue();
+            }
+        }
+
+        return bestIndex;
+    }
+
+    // Each lane keeps its own lowest value and where it was, replaced only by a strictly lower one, so every lane
+    // holds its earliest minimum. The lanes are split over four independent sets so the compares don't wait on each
+    // other. One reduction at the end then takes the earliest index among the lanes that hold the overall minimum.
+    // The values are exact integers well below 2^53, and so are the indices.
+    @Override
+    public int findLowestLine(double[] constants, double[] slopes, int end, double y)
+    {
+        DoubleVector best0 = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+        DoubleVector best1 = best0;
+        DoubleVector best2 = best0;
+        DoubleVector best3 = best0;
+        DoubleVector bestIndex0 = DoubleVector.zero(DOUBLES);
+        DoubleVector bestIndex1 = bestIndex0;
+        DoubleVector bestIndex2 = bestIndex0;
+        DoubleVector bestIndex3 = bestIndex0;
+        DoubleVector index = DoubleVector.fromArray(DOUBLES, LANE_INDICES, 0);
+        int i = 0;
+
+        for (; i <= end - LANES * 4; i += LANES * 4)
+        {
+            DoubleVector value0 = lineValues(constants, slopes, i, y);
+            DoubleVector value1 = lineValues(constants, slopes, i + LANES, y);
+            DoubleVector value2 = lineValues(constants, slopes, i + LANES * 2, y);
+            DoubleVector value3 = lineValues(constants, slopes, i + LANES * 3, y);
+            VectorMask<Double> lower0 = value0.lt(best0);
+            VectorMask<Double> lower1 = value1.lt(best1);
+            VectorMask<Double> lower2 = value2.lt(best2);
+            VectorMask<Double> lower3 = value3.lt(best3);
+            best0 = best0.blend(value0, lower0);
+            best1 = best1.blend(value1, lower1);
+            best2 = best2.blend(value2, lower2);
+            best3 = best3.blend(value3, lower3);
+            bestIndex0 = bestIndex0.blend(index, lower0);
+            bestIndex1 = bestIndex1.blend(index.add(LANES), lower1);
+            bestIndex2 = bestIndex2.blend(index.add(LANES * 2), lower2);
+            bestIndex3 = bestIndex3.blend(index.add(LANES * 3), lower3);
+            index = index.add(LANES * 4);
+        }
+
+        for (; i < end; i += LANES)
+        {
+            DoubleVector value = lineValues(constants, slopes, i, y);
+            VectorMask<Double> lower = value.lt(best0);
+            best0 = best0.blend(value, lower);
+            bestIndex0 = bestIndex0.blend(index, lower);
+            index = index.add(LANES);
+        }
+
+        double min = best0.min(best1).min(best2.min(best3)).reduceLanes(VectorOperators.MIN);
+        DoubleVector indices0 = bestIndex0.blend(Double.POSITIVE_INFINITY, best0.eq(min).not());
+        DoubleVector indices1 = bestIndex1.blend(Double.POSITIVE_INFINITY, best1.eq(min).not());
+        DoubleVector indices2 = bestIndex2.blend(Double.POSITIVE_INFINITY, best2.eq(min).not());
+        DoubleVector indices3 = bestIndex3.blend(Double.POSITIVE_INFINITY, best3.eq(min).not());
+        return (int) indices0.min(indices1).min(indices2.min(indices3)).reduceLanes(VectorOperators.MIN);
+    }
+
+    // constants - slopes * y for the lanes starting at offset
+    private static DoubleVector lineValues(double[] constants, double[] slopes, int offset, double y)
+    {
+        return DoubleVector.fromArray(DOUBLES, constants, offset).sub(DoubleVector.fromArray(DOUBLES, slopes, offset).mul(y));
+    }
+
+    // PortalCandidateTable.getBottomDistanceSq() per lane, infinite for candidates outside the search square
+    private static DoubleVector distanceSq(IntVector minX, IntVector maxX, IntVector minZ, IntVector maxZ, IntVector minY,
+                                           int destX, int destY, int destZ, int radius)
+    {
+        VectorMask<Integer> outside = maxX.lt(destX - radius)
+                                          .or(minX.compare(VectorOperators.GT, destX + radius))
+                                          .or(maxZ.lt(destZ - radius))
+                                          .or(minZ.compare(VectorOperators.GT, destZ + radius));
+
+        DoubleVector dx = toDoubles(maxX.min(destX).max(minX).sub(destX));
+        DoubleVector dy = toDoubles(minY.sub(destY));
+        DoubleVector dz = toDoubles(maxZ.min(destZ).max(minZ).sub(destZ));
+        DoubleVector distSq = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+
+        return distSq.blend(Double.POSITIVE_INFINITY, outside.cast(DOUBLES));
+    }
+
+    private static DoubleVector toDoubles(IntVector vector)
+    {
+        return (DoubleVector) vector.convertShape(VectorOperators.I2D, DOUBLES, 0);
+    }
+
+    private static double[] laneIndices()
+    {
+        double[] indices = new double[LANES];
+
+        for (int i = 0; i < LANES; ++i)
+        {
+            indices[i] = i;
+        }
+
+        return indices;
+    }
+}